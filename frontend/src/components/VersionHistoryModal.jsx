@@ -14,9 +14,18 @@ export default function VersionHistoryModal({ apiId, isOpen, onClose }) {
     const fetchVersionHistory = async () => {
         setLoading(true);
         try {
-            const response = await fetch(`/api/data/apis/${apiId}/version-history`);
-            const data = await response.json();
-            setVersionHistory(data);
+            // The endpoint is paged: follow X-Next-Cursor until the whole history is loaded
+            let rows = [];
+            let cursor = null;
+            do {
+                const params = new URLSearchParams({ limit: '1000' });
+                if (cursor) params.set('cursor', cursor);
+                const response = await fetch(`/api/data/apis/${apiId}/version-history?${params}`);
+                if (!response.ok) throw new Error(`HTTP ${response.status}`);
+                rows = rows.concat(await response.json());
+                setVersionHistory(rows);
+                cursor = response.headers.get('X-Next-Cursor');
+            } while (cursor);
         } catch (error) {
             console.error('Error fetching version history:', error);
         } finally {
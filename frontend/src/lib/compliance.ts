@@ -32,23 +32,46 @@ export const normalizeEnvironment = (env: string): string => {
     return normalized;
 };
 
-// Slightly more tolerant compare (handles "v1.2.3" or "1.2.3-beta")
-export const compareVersions = (version1: string, version2: string): number => {
-    const toParts = (v: string) =>
-        v.replace(/^v/i, '')
-            .split(/[.-]/)
-            .map(s => parseInt(s.replace(/\D+/g, ''), 10) || 0);
+// Same ordering as the server's SemanticVersion: optional "v" prefix, missing components count
+// as 0, a release ranks above its prereleases ("1.2.3-beta"), build metadata ("+sha") is ignored
+type ParsedVersion = { core: number[]; pre: string[] };
 
-    const v1 = toParts(version1);
-    const v2 = toParts(version2);
-    const len = Math.max(v1.length, v2.length);
+const parseVersion = (version: string): ParsedVersion => {
+    const match = /^[vV]?(\d+(?:\.\d+)*)(.*)$/.exec(version.trim());
+    if (!match) return { core: [], pre: [] };
+    const rest = match[2].split('+')[0].replace(/^[-._]/, '');
+    return {
+        core: match[1].split('.').map(s => parseInt(s, 10)),
+        pre: rest ? rest.split('.') : [],
+    };
+};
+
+const compareIdentifiers = (a: string, b: string): number => {
+    const numA = /^\d+$/.test(a);
+    const numB = /^\d+$/.test(b);
+    if (numA && numB) return parseInt(a, 10) - parseInt(b, 10);
+    if (numA) return -1;
+    if (numB) return 1;
+    return a.toLowerCase() < b.toLowerCase() ? -1 : a.toLowerCase() > b.toLowerCase() ? 1 : 0;
+};
+
+export const compareVersions = (version1: string, version2: string): number => {
+    const v1 = parseVersion(version1);
+    const v2 = parseVersion(version2);
+    const len = Math.max(v1.core.length, v2.core.length);
 
     for (let i = 0; i < len; i++) {
-        const a = v1[i] ?? 0;
-        const b = v2[i] ?? 0;
+        const a = v1.core[i] ?? 0;
+        const b = v2.core[i] ?? 0;
         if (a !== b) return a - b; // >0 => v1>v2
     }
-    return 0;
+
+    if (!v1.pre.length || !v2.pre.length) return v2.pre.length - v1.pre.length;
+    for (let i = 0; i < Math.min(v1.pre.length, v2.pre.length); i++) {
+        const cmp = compareIdentifiers(v1.pre[i], v2.pre[i]);
+        if (cmp !== 0) return cmp;
+    }
+    return v1.pre.length - v2.pre.length;
 };
 
 /**
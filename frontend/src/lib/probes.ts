@@ -0,0 +1,45 @@
+/**
+ * Probe results for many APIs in one request (/api/proxy/batch-check). The backend answers
+ * from its probe cache and only probes entries that are too old, so a refresh costs one
+ * request instead of one cross-origin fetch per API.
+ */
+import { post } from './api'
+
+export type ProbeResult = {
+  apiId: number | null
+  url: string
+  status: 'online' | 'offline' | string
+  responseTime: number
+  version?: string | null
+  service?: string | null
+  checkedAt: string
+  ageMs: number
+  source: 'cache' | 'probe' | 'circuit-open' | 'stale'
+}
+
+type BatchCheckResponse = {
+  results: ProbeResult[]
+  missing: number[]
+  pending?: number[]
+  probed: number
+  timestamp: string
+}
+
+/** Same cap as the backend (ProxyController.MAX_BATCH_SIZE); larger fleets are sent in chunks */
+const MAX_BATCH_SIZE = 5000
+
+export async function batchCheck(apiIds: number[], maxAgeMs?: number): Promise<Map<number, ProbeResult>> {
+  const byId = new Map<number, ProbeResult>()
+  const chunks: number[][] = []
+  for (let i = 0; i < apiIds.length; i += MAX_BATCH_SIZE) {
+    chunks.push(apiIds.slice(i, i + MAX_BATCH_SIZE))
+  }
+  const responses = await Promise.all(chunks.map(chunk =>
+    post<BatchCheckResponse>('/proxy/batch-check', { apiIds: chunk, maxAgeMs })))
+  for (const { data } of responses) {
+    for (const r of data.results) {
+      if (r.apiId != null) byId.set(r.apiId, r)
+    }
+  }
+  return byId
+}
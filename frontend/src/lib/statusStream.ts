@@ -0,0 +1,37 @@
+/**
+ * Subscribes to the backend push channel (/api/data/stream) which sends only
+ * status / latency / version deltas. EventSource reconnects by itself and
+ * resumes from the last received sequence number (Last-Event-ID).
+ */
+export type StatusEvent = {
+  seq: number
+  type: 'status' | 'removed' | 'resync'
+  apiId?: number | null
+  status?: string | null
+  responseTime?: number | null
+  version?: string | null
+  service?: string | null
+  checkedAt?: string | null
+}
+
+export function subscribeStatus(
+    since: number | undefined,
+    onEvent: (e: StatusEvent) => void,
+    onResync: () => void,
+): () => void {
+  const url = since != null ? `/api/data/stream?since=${since}` : '/api/data/stream'
+  const source = new EventSource(url, { withCredentials: true })
+
+  const handle = (msg: MessageEvent) => {
+    try {
+      onEvent(JSON.parse(msg.data) as StatusEvent)
+    } catch {
+      // ignore malformed frames
+    }
+  }
+  source.addEventListener('status', handle as EventListener)
+  source.addEventListener('removed', handle as EventListener)
+  source.addEventListener('resync', () => onResync())
+
+  return () => source.close()
+}
@@ -1,7 +1,8 @@
-import React, { useEffect, useMemo, useState } from "react";
+import React, { useEffect, useMemo, useRef, useState } from "react";
 import axios, { AxiosError } from "axios";
 import { Search, Filter, Globe, Server, Zap, CheckCircle, AlertCircle, ExternalLink, RefreshCw, Plus, Edit, Trash2 } from 'lucide-react';
 import api from "../../lib/api";
+import { subscribeStatus, type StatusEvent } from "../../lib/statusStream";
 
 /** ===== Types from backend payload ===== */
 type ApiRec = {
@@ -23,14 +24,16 @@ type Project = {
   apis?: ApiRec[];
 };
 
-type MetaMap = Record<string, { service?: string; version?: string }>;
+type MetaMap = Record<string, { service?: string; version?: string; checkedAt?: string | null; ageMs?: number | null }>;
 
 type DataPayload = {
   projects: Project[];
   apis?: ApiRec[];              // optional
-  allApis?: ApiRec[];           // flattened list if your backend returns it
-  apisMeta?: MetaMap;           // { [apiId]: { service, version } }
+  allApis?: ApiRec[];           // legacy duplicate of apis, no longer sent
+  apisMeta?: MetaMap;           // { [apiId]: { service, version, checkedAt, ageMs } } from the probe snapshot
   fetchedAt?: string;
+  seq?: number;                 // resume point for the push channel
+  dataVersion?: number;         // pass back as ?since= for a delta
 };
 
 /** ===== UI helpers ===== */
@@ -88,6 +91,7 @@ const Modal: React.FC<{
 
 export default function AllApis() {
   const [data, setData] = useState<DataPayload | null>(null);
+  const knownIds = useRef<Set<number>>(new Set());
   const [loading, setLoading] = useState(false);
   const [authErr, setAuthErr] = useState<string | null>(null);
 
@@ -106,16 +110,19 @@ export default function AllApis() {
   const [editEnv, setEditEnv] = useState<EnvKey>("DEV");
   const [editRegion, setEditRegion] = useState("paris-1");
 
-  const fetchAll = async () => {
+  /** Loads the full payload; resolves with its push sequence number (undefined if the load failed) */
+  const fetchAll = async (): Promise<number | undefined> => {
     setLoading(true);
     setAuthErr(null);
     try {
       // Always call the secured API with the preconfigured axios instance
       const res = await api.get<DataPayload>("/data/projects");
+      knownIds.current = new Set(((res.data.allApis?.length ? res.data.allApis : res.data.apis) || []).map((a) => a.id));
       setData(res.data);
       if (formProjectId == null && res.data.projects?.length) {
         setFormProjectId(res.data.projects[0].id);
       }
+      return res.data.seq;
     } catch (e) {
       const err = e as AxiosError;
       if (err.response?.status === 401 || err.response?.status === 403) {
@@ -126,12 +133,43 @@ export default function AllApis() {
     } finally {
       setLoading(false);
     }
+    return undefined;
+  };
+
+  /** Apply one pushed delta to the loaded payload (status/latency on the row, version/service in apisMeta) */
+  const applyEvent = (e: StatusEvent) => {
+    if (e.apiId == null) return;
+    const id = e.apiId;
+    if (e.type === "status" && !knownIds.current.has(id)) {
+      fetchAll(); // new API registered elsewhere
+      return;
+    }
+    setData((d) => {
+      if (!d) return d;
+      const list = (d.allApis?.length ? d.allApis : d.apis) || [];
+      if (e.type === "removed") {
+        const rest = list.filter((a) => a.id !== id);
+        return { ...d, apis: rest, allApis: rest, seq: e.seq };
+      }
+      const updated = list.map((a) =>
+          a.id === id ? { ...a, status: e.status ?? a.status, responseTime: e.responseTime ?? a.responseTime, lastChecked: e.checkedAt ?? a.lastChecked } : a
+      );
+      const meta = { ...(d.apisMeta || {}) };
+      meta[String(id)] = { ...meta[String(id)], version: e.version ?? undefined, service: e.service ?? meta[String(id)]?.service, checkedAt: e.checkedAt, ageMs: 0 };
+      return { ...d, apis: updated, allApis: updated, apisMeta: meta, seq: e.seq };
+    });
   };
 
   useEffect(() => {
-    fetchAll();
-    const t = window.setInterval(fetchAll, 30_000);
-    return () => window.clearInterval(t);
+    // Deltas arrive over the push channel; the slow full reload is only a safety net.
+    // Subscribe once the first payload has filled knownIds, resuming from its sequence number.
+    let cancelled = false;
+    let unsubscribe: (() => void) | undefined;
+    fetchAll().then((seq) => {
+      if (!cancelled) unsubscribe = subscribeStatus(seq, applyEvent, fetchAll);
+    });
+    const t = window.setInterval(fetchAll, 300_000);
+    return () => { cancelled = true; unsubscribe?.(); window.clearInterval(t); };
     // eslint-disable-next-line react-hooks/exhaustive-deps
   }, []);
 
@@ -4,6 +4,7 @@ import {
 } from "lucide-react";
 import { useData } from "../useData";
 import { ApiResponse, ServiceViolation, checkServiceCompliance, normalizeEnvironment } from "../../lib/compliance";
+import { batchCheck } from "../../lib/probes";
 
 type ComplianceResult = {
     services: Record<string, Record<string, ApiResponse>>;
@@ -35,24 +36,6 @@ export default function Compliance() {
         }
     };
 
-    const fetchWithTimeout = async (url: string, ms = 8000): Promise<Response> => {
-        const ctrl = new AbortController();
-        const id = setTimeout(() => ctrl.abort(), ms);
-        try {
-            return await fetch(url, { signal: ctrl.signal });
-        } finally {
-            clearTimeout(id);
-        }
-    };
-
-    const safeJson = async (res: Response) => {
-        try {
-            return await res.json();
-        } catch {
-            return {};
-        }
-    };
-
     // ---- core checker ---------------------------------------------------------
     const checkCompliance = async () => {
         setLoading(true);
@@ -63,44 +46,30 @@ export default function Compliance() {
             const serviceGroups: Record<string, Record<string, ApiResponse>> = {};
             const apis = state.apis ?? [];
 
-            // fetch everything in parallel (faster + resilient)
-            const results = await Promise.allSettled(
-                apis.map(async (apiItem) => {
-                    let response: Response | null = null;
-                    let data: any = {};
-                    try {
-                        response = await fetchWithTimeout(apiItem.url);
-                        data = await safeJson(response);
-                    } catch {
-                        // keep response null
-                    }
-
-                    const envKey = normalizeEnvironment(apiItem.environment);
-                    const serviceName = data?.service || extractServiceFromUrl(apiItem.url);
-                    const projectName =
-                        state.projects.find((p) => p.id === apiItem.projectId)?.name || "Unknown Project";
-                    const serviceKey = `${serviceName}-${apiItem.projectId}`;
-
-                    if (!serviceGroups[serviceKey]) serviceGroups[serviceKey] = {};
+            // one request for all APIs; the backend answers from its probe cache and
+            // only probes the stale ones (a failed request surfaces as the error below)
+            const probes = await batchCheck(apis.map((a) => a.id));
+            for (const apiItem of apis) {
+                const probe = probes.get(apiItem.id);
+                const envKey = normalizeEnvironment(apiItem.environment);
+                const serviceName = probe?.service || extractServiceFromUrl(apiItem.url);
+                const projectName =
+                    state.projects.find((p) => p.id === apiItem.projectId)?.name || "Unknown Project";
+                const serviceKey = `${serviceName}-${apiItem.projectId}`;
 
-                    serviceGroups[serviceKey][envKey] = {
-                        service: serviceName,
-                        version: typeof data?.version === "string" && data.version.trim() ? data.version : "0.0.0",
-                        url: apiItem.url,
-                        status: response?.ok ? "online" : "offline",
-                        environment: envKey,
-                        region: apiItem.region || "unknown",
-                        responseTime: response ? Math.floor(Math.random() * 200) + 50 : 0, // placeholder
-                        projectId: apiItem.projectId,
-                        projectName,
-                    };
-                })
-            );
+                if (!serviceGroups[serviceKey]) serviceGroups[serviceKey] = {};
 
-            // if *every* fetch failed catastrophically, surface one error
-            const allRejected = results.every((r) => r.status === "rejected");
-            if (apis.length > 0 && allRejected) {
-                throw new Error("All API checks failed (network/CORS/timeout).");
+                serviceGroups[serviceKey][envKey] = {
+                    service: serviceName,
+                    version: probe?.version?.trim() || "0.0.0",
+                    url: apiItem.url,
+                    status: probe?.status === "online" ? "online" : "offline",
+                    environment: envKey,
+                    region: apiItem.region || "unknown",
+                    responseTime: probe?.responseTime ?? 0,
+                    projectId: apiItem.projectId,
+                    projectName,
+                };
             }
 
             // run compliance per grouped service against the fixed rules (A & B)
@@ -3,6 +3,7 @@ import { BarChart, Bar, XAxis, YAxis, CartesianGrid, Tooltip, ResponsiveContaine
 import { Activity, Server, Globe, TrendingUp, AlertTriangle, CheckCircle, RefreshCw, Clock, Zap, Shield, Eye, Settings } from 'lucide-react';
 import { useData, computeMetrics, filterApis } from '../useData';
 import { ApiResponse, checkServiceCompliance, normalizeEnvironment } from "../../lib/compliance";
+import { batchCheck } from "../../lib/probes";
 
 const COLORS = ['#3B82F6', '#10B981', '#F59E0B', '#EF4444', '#8B5CF6', '#06B6D4'];
 
@@ -26,63 +27,36 @@ export default function Dashboard() {
     }
   };
 
-  const fetchWithTimeout = async (url: string, ms = 8000): Promise<Response> => {
-    const ctrl = new AbortController();
-    const id = setTimeout(() => ctrl.abort(), ms);
-    try {
-      return await fetch(url, { signal: ctrl.signal });
-    } finally {
-      clearTimeout(id);
-    }
-  };
-
-  const safeJson = async (res: Response) => {
-    try {
-      return await res.json();
-    } catch {
-      return {};
-    }
-  };
-
   // Calculate compliance score - EXACT SAME LOGIC AS COMPLIANCE TAB
   const calculateComplianceScore = async () => {
     try {
       const serviceGroups: Record<string, Record<string, ApiResponse>> = {};
       const apis = filtered;
 
-      // Fetch everything in parallel - SAME AS COMPLIANCE TAB
-      const results = await Promise.allSettled(
-          apis.map(async (apiItem) => {
-            let response: Response | null = null;
-            let data: any = {};
-            try {
-              response = await fetchWithTimeout(apiItem.url);
-              data = await safeJson(response);
-            } catch {
-              // keep response null
-            }
-
-            const envKey = normalizeEnvironment(apiItem.environment);
-            const serviceName = data?.service || extractServiceFromUrl(apiItem.url);
-            const projectName =
-                state.projects.find((p) => p.id === apiItem.projectId)?.name || "Unknown Project";
-            const serviceKey = `${serviceName}-${apiItem.projectId}`;
-
-            if (!serviceGroups[serviceKey]) serviceGroups[serviceKey] = {};
-
-            serviceGroups[serviceKey][envKey] = {
-              service: serviceName,
-              version: typeof data?.version === "string" && data.version.trim() ? data.version : "0.0.0",
-              url: apiItem.url,
-              status: response?.ok ? "online" : "offline",
-              environment: envKey,
-              region: apiItem.region || "unknown",
-              responseTime: response ? Math.floor(Math.random() * 200) + 50 : 0,
-              projectId: apiItem.projectId,
-              projectName,
-            };
-          })
-      );
+      // One request for all APIs, served from the backend probe cache - SAME AS COMPLIANCE TAB
+      const probes = await batchCheck(apis.map((a) => a.id));
+      for (const apiItem of apis) {
+        const probe = probes.get(apiItem.id);
+        const envKey = normalizeEnvironment(apiItem.environment);
+        const serviceName = probe?.service || extractServiceFromUrl(apiItem.url);
+        const projectName =
+            state.projects.find((p) => p.id === apiItem.projectId)?.name || "Unknown Project";
+        const serviceKey = `${serviceName}-${apiItem.projectId}`;
+
+        if (!serviceGroups[serviceKey]) serviceGroups[serviceKey] = {};
+
+        serviceGroups[serviceKey][envKey] = {
+          service: serviceName,
+          version: probe?.version?.trim() || "0.0.0",
+          url: apiItem.url,
+          status: probe?.status === "online" ? "online" : "offline",
+          environment: envKey,
+          region: apiItem.region || "unknown",
+          responseTime: probe?.responseTime ?? 0,
+          projectId: apiItem.projectId,
+          projectName,
+        };
+      }
 
       // Run compliance per grouped service - SAME AS COMPLIANCE TAB
       const violations: any[] = [];
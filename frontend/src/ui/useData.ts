@@ -1,5 +1,6 @@
 import { useCallback, useEffect, useMemo, useRef, useState } from 'react'
 import api from '../lib/api';
+import { subscribeStatus, type StatusEvent } from '../lib/statusStream'
 import type { ApiItem, Project } from '../types'
 
 export type DataState = {
@@ -13,24 +14,60 @@ export type DataState = {
 export function useData(auto=true) {
   const [state, setState] = useState<DataState>({projects:[], apis:[], lastUpdated:0, loading:true})
   const timer = useRef<number|undefined>(undefined)
+  const seq = useRef<number|undefined>(undefined)
+  const known = useRef<Set<number>>(new Set())
 
   const load = useCallback(async ()=>{
     setState(s=>({...s, loading:true, error: undefined}))
     try{
       const res = await api.get('/api/data/projects')
       const data = res.data
+      seq.current = data.seq
+      known.current = new Set((data.apis || []).map((a: ApiItem)=>a.id))
       setState({projects:data.projects, apis:data.apis, lastUpdated: Date.now(), loading:false})
     }catch(e:any){
       setState(s=>({...s, loading:false, error:e?.message || 'Failed to load'}))
     }
   }, [])
 
+  const applyEvent = useCallback((e: StatusEvent)=>{
+    seq.current = e.seq
+    if(e.apiId == null) return
+    if(e.type === 'removed'){
+      known.current.delete(e.apiId)
+      setState(s=>({...s, apis: s.apis.filter(a=>a.id!==e.apiId), lastUpdated: Date.now()}))
+      return
+    }
+    if(!known.current.has(e.apiId)){
+      // API we have not seen yet (added elsewhere): fetch the full payload once
+      load()
+      return
+    }
+    setState(s=>{
+      return {
+        ...s,
+        lastUpdated: Date.now(),
+        apis: s.apis.map(a=>a.id===e.apiId
+            ? {...a, status: e.status ?? a.status, responseTime: e.responseTime ?? a.responseTime, lastChecked: e.checkedAt ?? a.lastChecked}
+            : a),
+      }
+    })
+  }, [load])
+
   useEffect(()=>{
-    load()
+    const initial = load()
     if(!auto) return
-    timer.current = window.setInterval(load, 30000)
-    return ()=>{ if(timer.current) clearInterval(timer.current) }
-  }, [load, auto])
+    // Deltas arrive over the push channel; the slow full reload is only a safety net.
+    // Subscribe once the first payload has filled `known` and `seq`, so early events
+    // neither trigger reloads for APIs we simply have not loaded yet nor replay from scratch.
+    let cancelled = false
+    let unsubscribe: (()=>void) | undefined
+    initial.then(()=>{
+      if(!cancelled) unsubscribe = subscribeStatus(seq.current, applyEvent, load)
+    })
+    timer.current = window.setInterval(load, 300000)
+    return ()=>{ cancelled = true; unsubscribe?.(); if(timer.current) clearInterval(timer.current) }
+  }, [load, applyEvent, auto])
 
   return { state, reload: load }
 }
@@ -0,0 +1,81 @@
+package com.example.monitoring;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the application on an in-memory H2 database with background probing switched off
+ * and fills it with a synthetic fleet: 20 APIs per project, environments dev/uat/oat/prod
+ * in turn, every API already probed once.
+ */
+public final class BenchmarkData {
+
+    public static final int APIS_PER_PROJECT = 20;
+    private static final String[] ENVIRONMENTS = {"dev", "uat", "oat", "prod"};
+
+    private BenchmarkData() {}
+
+    public static ConfigurableApplicationContext start() {
+        return SpringApplication.run(MonitoringApplication.class,
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--monitoring.probe.initial-delay-ms=86400000");
+    }
+
+    /**
+     * @param historyPerApi api_version_history rows per API (one version each, a day apart)
+     */
+    public static void seed(JdbcTemplate jdbc, int apis, int historyPerApi) {
+        int projects = Math.max(1, (apis + APIS_PER_PROJECT - 1) / APIS_PER_PROJECT);
+        Instant now = Instant.now();
+
+        List<Object[]> projectRows = new ArrayList<>(projects);
+        for (int p = 1; p <= projects; p++) {
+            projectRows.add(new Object[]{p, "project-" + p, Timestamp.from(now.minusSeconds(p))});
+        }
+        jdbc.batchUpdate("INSERT INTO projects (id, name, created_at) VALUES (?, ?, ?)", projectRows);
+
+        List<Object[]> apiRows = new ArrayList<>(apis);
+        for (int a = 1; a <= apis; a++) {
+            apiRows.add(new Object[]{a, (a - 1) / APIS_PER_PROJECT + 1,
+                    "https://svc-" + a + ".bench.invalid/version", ENVIRONMENTS[a % ENVIRONMENTS.length], "paris-1",
+                    "online", 20 + a % 180, Timestamp.from(now), Timestamp.from(now.minusSeconds(a)),
+                    version(a, historyPerApi)});
+        }
+        jdbc.batchUpdate("""
+            INSERT INTO apis (id, project_id, url, environment, region, status, response_time,
+                              last_checked, created_at, current_version)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """, apiRows);
+
+        if (historyPerApi == 0) return;
+        List<Object[]> historyRows = new ArrayList<>(apis * historyPerApi);
+        for (int a = 1; a <= apis; a++) {
+            for (int h = 1; h <= historyPerApi; h++) {
+                historyRows.add(new Object[]{a, version(a, h), ENVIRONMENTS[a % ENVIRONMENTS.length], "paris-1",
+                        "online", 20 + h % 180, Timestamp.from(now.minus(Duration.ofDays(historyPerApi - h))),
+                        "svc-" + a, "https://svc-" + a + ".bench.invalid/version", (a - 1) / APIS_PER_PROJECT + 1,
+                        h > 1 ? version(a, h - 1) : null, h > 1 ? "patch" : "initial"});
+            }
+        }
+        jdbc.batchUpdate("""
+            INSERT INTO api_version_history (api_id, version, environment, region, status, response_time,
+                                             detected_at, service_name, url, project_id, previous_version,
+                                             version_change_type)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """, historyRows);
+    }
+
+    private static String version(int api, int n) {
+        return (1 + api % 3) + "." + (n / 10) + "." + (n % 10);
+    }
+}
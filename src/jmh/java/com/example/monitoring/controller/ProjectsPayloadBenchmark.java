@@ -0,0 +1,68 @@
+package com.example.monitoring.controller;
+
+import com.example.monitoring.BenchmarkData;
+import com.example.monitoring.service.ProbeSnapshotStore;
+import com.example.monitoring.service.ProbeSnapshotStore.ProbeSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full GET /api/data/projects payload (no since=, no If-None-Match) written to a discarding
+ * stream, with a probe snapshot for every API.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProjectsPayloadBenchmark {
+
+    @Param({"1000", "10000"})
+    public int apis;
+
+    private ConfigurableApplicationContext context;
+    private DataController controller;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkData.start();
+        BenchmarkData.seed(context.getBean(JdbcTemplate.class), apis, 0);
+        ProbeSnapshotStore snapshots = context.getBean(ProbeSnapshotStore.class);
+        Instant now = Instant.now();
+        for (long id = 1; id <= apis; id++) {
+            snapshots.put(new ProbeSnapshot(id, "online", 20 + (int) (id % 180), "1.0." + id % 10, "svc-" + id, now));
+        }
+        controller = context.getBean(DataController.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void fullPayload() throws IOException {
+        var response = controller.getProjects(null, new ServletWebRequest(new MockHttpServletRequest()));
+        response.getBody().writeTo(OutputStream.nullOutputStream());
+    }
+}
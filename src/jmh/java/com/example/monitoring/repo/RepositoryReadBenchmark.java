@@ -0,0 +1,73 @@
+package com.example.monitoring.repo;
+
+import com.example.monitoring.BenchmarkData;
+import com.example.monitoring.service.VersionHistoryService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository reads against the in-memory H2 database: every API through the ApiRow mapper,
+ * one page of APIs and one page of an API's version history (both keyset pages of maps).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepositoryReadBenchmark {
+
+    @Param({"1000"})
+    public int apis;
+
+    private static final int HISTORY_PER_API = 50;
+    private static final List<String> ALL_API_FIELDS = List.copyOf(ProjectRepository.API_FIELDS.keySet());
+    private static final List<String> ALL_HISTORY_FIELDS = List.copyOf(VersionHistoryService.HISTORY_FIELDS.keySet());
+
+    private ConfigurableApplicationContext context;
+    private ProjectRepository repo;
+    private VersionHistoryService versionHistory;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkData.start();
+        BenchmarkData.seed(context.getBean(JdbcTemplate.class), apis, HISTORY_PER_API);
+        repo = context.getBean(ProjectRepository.class);
+        versionHistory = context.getBean(VersionHistoryService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object findAllApis() {
+        return repo.findAllApis();
+    }
+
+    @Benchmark
+    public Object apisPage() {
+        return repo.findApisPage(null, null, 100, ALL_API_FIELDS);
+    }
+
+    @Benchmark
+    public Object versionHistoryPage() {
+        return versionHistory.getVersionHistory((long) apis / 2, null, null, HISTORY_PER_API, ALL_HISTORY_FIELDS);
+    }
+}
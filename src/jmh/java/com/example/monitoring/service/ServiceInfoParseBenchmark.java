@@ -0,0 +1,63 @@
+package com.example.monitoring.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extraction of version/service from a probe response body (probes and /api/proxy/check), for a bare
+ * version document, a typical actuator/info payload and a large health document with the
+ * fields at the end, plus a non-JSON body (plain "OK" health endpoints).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceInfoParseBenchmark {
+
+    @Param({"small", "4k", "64k", "text"})
+    public String body;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private String payload;
+
+    @Setup
+    public void setUp() {
+        payload = switch (body) {
+            case "small" -> "{\"service\":\"orders-api\",\"version\":\"4.2.17\"}";
+            case "4k" -> document(4 * 1024);
+            case "64k" -> document(64 * 1024);
+            case "text" -> "OK";
+            default -> throw new IllegalArgumentException(body);
+        };
+    }
+
+    /** Health-style document of about {@code size} bytes; version/service come last */
+    private static String document(int size) {
+        StringBuilder sb = new StringBuilder("{\"status\":\"UP\",\"components\":{");
+        for (int i = 0; sb.length() < size - 100; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("\"check").append(i).append("\":{\"status\":\"UP\",\"details\":{\"latencyMs\":")
+                    .append(i % 97).append(",\"host\":\"db-").append(i).append(".internal\"}}");
+        }
+        return sb.append("},\"service\":\"orders-api\",\"version\":\"4.2.17\"}").toString();
+    }
+
+    @Benchmark
+    public Object parse() {
+        return ServiceInfo.parse(mapper, payload);
+    }
+}
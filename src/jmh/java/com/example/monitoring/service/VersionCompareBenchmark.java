@@ -0,0 +1,72 @@
+package com.example.monitoring.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Version comparison as done on every compliance check (ComplianceRules.compareVersions, also
+ * behind EnhancedProxyController) and on every detected version (determineChangeType).
+ * Each invocation goes over the same mix of version pairs; both go through the interned
+ * SemanticVersion, {@link #parse} shows what a cache miss costs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VersionCompareBenchmark {
+
+    private final String[][] pairs = {
+            {"1.2.3", "1.2.4"},
+            {"2.0.0", "1.9.12"},
+            {"10.4", "10.4.0"},
+            {"3.14.159", "3.14.159"},
+            {"1.0.0", "0.0.0"},
+            {"4.2.17", "4.3.0"},
+            {"2024.11.3", "2024.12.0"},
+            {"7", "7.0.1"},
+            {"v2.0", "2.0.0"},
+            {"1.2.3-beta.2", "1.2.3-beta.11"},
+            {"1.2.3+build.5", "1.2.3-rc.1"},
+    };
+
+    @Benchmark
+    public void compareVersions(Blackhole bh) {
+        for (String[] p : pairs) {
+            bh.consume(ComplianceRules.compareVersions(p[0], p[1]));
+        }
+    }
+
+    @Benchmark
+    public void determineChangeType(Blackhole bh) {
+        for (String[] p : pairs) {
+            bh.consume(VersionHistoryService.determineChangeType(p[1], p[0]));
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) {
+        for (String[] p : pairs) {
+            bh.consume(SemanticVersion.parse(p[0]));
+            bh.consume(SemanticVersion.parse(p[1]));
+        }
+    }
+
+    /** The three comparisons of one service's PROD/OAT/UAT row */
+    @Benchmark
+    public Object validateEnvironments() {
+        return ComplianceRules.validate(Map.of("uat", "4.3.0", "oat", "4.2.17", "prod", "4.2.9"));
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.monitoring.loadtest;
+
+import com.example.monitoring.MonitoringApplication;
+import com.example.monitoring.repo.ProjectRepository;
+import com.example.monitoring.repo.ProjectRepository.ProbeTarget;
+import com.example.monitoring.service.MonitoringService;
+import com.example.monitoring.service.ProbeTimeSeries;
+import com.example.monitoring.service.ProbeWriteBuffer;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * End-to-end probe load test: starts a {@link SyntheticFleet}, boots the application against
+ * it, registers every endpoint through POST /api/data/projects/{id}/apis and then drives
+ * <ol>
+ *   <li>{@code MonitoringService.batchCheck} over the whole fleet, {@code --rounds} times,</li>
+ *   <li>{@code MonitoringService.checkAndUpdate} for {@code --checks} calls at
+ *       {@code --check-concurrency},</li>
+ *   <li>POST /api/enhanced-proxy/compliance-check/batch, {@code --compliance-requests} requests
+ *       of {@code --services-per-request} services (4 environments each).</li>
+ * </ol>
+ * Each phase reports probes/sec, end-to-end latency percentiles, rows written to the database
+ * per second and heap use. Options are {@code --name=value}; {@code --spring.*},
+ * {@code --server.*} and {@code --monitoring.*} are passed on to the application (e.g. a
+ * PostgreSQL {@code --spring.datasource.url}). Background probing stays off unless
+ * {@code --monitoring.probe.initial-delay-ms} is given.
+ */
+public final class ProbeLoadTest {
+
+    private static final String[] ENVIRONMENTS = {"dev", "uat", "oat", "prod"};
+    private static final int APIS_PER_PROJECT = 100;
+
+    private final Map<String, String> options;
+    private final SyntheticFleet fleet;
+    private final ConfigurableApplicationContext app;
+    private final WebClient client;
+    private final JdbcTemplate jdbc;
+    private final MeterRegistry meters;
+    private final Map<Long, String> apis = new LinkedHashMap<>();
+    private String session;
+
+    private ProbeLoadTest(Map<String, String> options, SyntheticFleet fleet, ConfigurableApplicationContext app) {
+        this.options = options;
+        this.fleet = fleet;
+        this.app = app;
+        int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+        this.client = WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .codecs(c -> c.defaultCodecs().maxInMemorySize(64 * 1024 * 1024))
+                .build();
+        this.jdbc = app.getBean(JdbcTemplate.class);
+        this.meters = app.getBean(MeterRegistry.class);
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> appArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN"));
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got '" + arg + "'");
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            if (name.startsWith("spring.") || name.startsWith("server.") || name.startsWith("monitoring.")) {
+                appArgs.add(arg);
+            }
+            options.put(name, arg.substring(arg.indexOf('=') + 1));
+        }
+        if (!options.containsKey("monitoring.probe.initial-delay-ms")) {
+            appArgs.add("--monitoring.probe.initial-delay-ms=86400000");
+        }
+
+        SyntheticFleet.Options fleetOptions = new SyntheticFleet.Options(
+                intOption(options, "endpoints", 2000),
+                intOption(options, "hosts", 8),
+                doubleOption(options, "latency-median-ms", 40),
+                doubleOption(options, "latency-p99-ms", 400),
+                doubleOption(options, "error-rate", 0.02),
+                doubleOption(options, "timeout-rate", 0.002),
+                (long) doubleOption(options, "hang-ms", 30000),
+                doubleOption(options, "slow-body-rate", 0.01),
+                (long) doubleOption(options, "slow-body-ms", 2000),
+                doubleOption(options, "version-change-rate", 0.01));
+
+        try (SyntheticFleet fleet = new SyntheticFleet(fleetOptions).start();
+             ConfigurableApplicationContext app = SpringApplication.run(MonitoringApplication.class,
+                     appArgs.toArray(String[]::new))) {
+            System.out.println(String.format("Fleet: %s", fleetOptions));
+            new ProbeLoadTest(options, fleet, app).run();
+        }
+        System.exit(0);
+    }
+
+    private void run() {
+        login();
+        register();
+
+        MonitoringService monitoring = app.getBean(MonitoringService.class);
+        List<ProbeTarget> targets = app.getBean(ProjectRepository.class).findProbeTargets().stream()
+                .filter(t -> apis.containsKey(t.id()))
+                .toList();
+        int rounds = intOption(options, "rounds", 3);
+        for (int r = 1; r <= rounds; r++) {
+            measure("batchCheck #" + r, apis.size(), () -> {
+                long start = System.nanoTime();
+                monitoring.batchCheck(targets);
+                return new long[]{System.nanoTime() - start};
+            });
+        }
+
+        int checks = intOption(options, "checks", 5000);
+        int checkConcurrency = intOption(options, "check-concurrency", 64);
+        measure("checkAndUpdate", checks, () -> timed(Flux.range(0, checks), checkConcurrency, i -> {
+            ProbeTarget target = targets.get(i % targets.size());
+            return Mono.fromCallable(() -> monitoring.checkAndUpdate(target))
+                    .subscribeOn(Schedulers.boundedElastic());
+        }));
+
+        int requests = intOption(options, "compliance-requests", 200);
+        int perRequest = intOption(options, "services-per-request", 20);
+        int complianceConcurrency = intOption(options, "compliance-concurrency", 16);
+        int services = fleet.size() / ENVIRONMENTS.length;
+        measure("compliance-check/batch", (long) requests * perRequest * ENVIRONMENTS.length,
+                () -> timed(Flux.range(0, requests), complianceConcurrency, i -> client.post()
+                        .uri("/api/enhanced-proxy/compliance-check/batch")
+                        .header(HttpHeaders.COOKIE, session)
+                        .bodyValue(Map.of("services", complianceServices(i * perRequest, perRequest, services)))
+                        .retrieve()
+                        .bodyToMono(JsonNode.class)));
+
+        SyntheticFleet.Stats stats = fleet.stats();
+        System.out.println(String.format("Fleet served %d requests: %d errors, %d hangs, %d slow bodies, %d version changes",
+                stats.requests(), stats.errors(), stats.hangs(), stats.slowBodies(), stats.versionChanges()));
+    }
+
+    private void login() {
+        session = client.post().uri("/api/auth/login")
+                .bodyValue(Map.of("username", options.getOrDefault("username", "admin"),
+                        "password", options.getOrDefault("password", "admin123")))
+                .exchangeToMono(resp -> {
+                    if (!resp.statusCode().is2xxSuccessful()) {
+                        return Mono.error(new IllegalStateException("Login failed: " + resp.statusCode()));
+                    }
+                    return resp.releaseBody().thenReturn(resp.cookies().getFirst("JSESSIONID"));
+                })
+                .map(cookie -> cookie.getName() + "=" + cookie.getValue())
+                .block();
+    }
+
+    /**
+     * Endpoint n becomes an API of project n / 100 in environment n % 4, through the same
+     * request the dashboard sends (which also runs the first probe).
+     */
+    private void register() {
+        int concurrency = intOption(options, "register-concurrency", 32);
+        List<Long> projects = Flux.range(0, (fleet.size() + APIS_PER_PROJECT - 1) / APIS_PER_PROJECT)
+                .concatMap(p -> client.post().uri("/api/data/projects")
+                        .bodyValue(Map.of("name", "load-" + System.currentTimeMillis() + "-" + p))
+                        .retrieve()
+                        .bodyToMono(JsonNode.class)
+                        .map(json -> json.get("id").asLong()))
+                .collectList()
+                .block();
+
+        Map<Integer, Long> ids = new ConcurrentHashMap<>();
+        measure("register (POST /apis)", fleet.size(), () -> timed(Flux.range(0, fleet.size()), concurrency, n ->
+                client.post().uri("/api/data/projects/{id}/apis", projects.get(n / APIS_PER_PROJECT))
+                        .bodyValue(Map.of("url", fleet.url(n), "environment", ENVIRONMENTS[n % ENVIRONMENTS.length]))
+                        .retrieve()
+                        .bodyToMono(JsonNode.class)
+                        .doOnNext(json -> ids.put(n, json.get("id").asLong()))));
+        for (int n = 0; n < fleet.size(); n++) {
+            if (ids.containsKey(n)) apis.put(ids.get(n), fleet.url(n));
+        }
+    }
+
+    private List<Map<String, Object>> complianceServices(int first, int count, int services) {
+        List<Map<String, Object>> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int s = (first + i) % services;
+            List<String> urls = new ArrayList<>(ENVIRONMENTS.length);
+            for (int e = 0; e < ENVIRONMENTS.length; e++) {
+                urls.add(fleet.url(s * ENVIRONMENTS.length + e));
+            }
+            out.add(Map.of("service", "svc-" + s, "urls", urls, "environments", List.of(ENVIRONMENTS)));
+        }
+        return out;
+    }
+
+    /**
+     * Run {@code count} calls at the given concurrency and return each call's duration in
+     * nanoseconds; a failed call still counts with the time it took to fail.
+     */
+    private static long[] timed(Flux<Integer> calls, int concurrency, Function<Integer, Mono<?>> call) {
+        ConcurrentLinkedQueue<Long> durations = new ConcurrentLinkedQueue<>();
+        calls.flatMap(i -> {
+                    long start = System.nanoTime();
+                    return call.apply(i)
+                            .onErrorResume(e -> Mono.empty())
+                            .doFinally(signal -> durations.add(System.nanoTime() - start));
+                }, concurrency)
+                .then()
+                .block();
+        return durations.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * One phase: wall time, probe throughput, latency of the individual calls, database rows
+     * written (status updates, latency samples, version history) and heap.
+     */
+    private void measure(String phase, long probes, Supplier<long[]> work) {
+        long rowsBefore = rowsWritten();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        long start = System.nanoTime();
+        long[] latencies = work.get();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long rows = rowsWritten() - rowsBefore;
+        long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        long usedHeap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+        Arrays.sort(latencies);
+        System.out.println(String.format(
+                "%-24s %7.1fs %9.1f probes/s | p50 %8.1f ms  p99 %8.1f ms  max %8.1f ms | %8.1f rows/s | heap %5d MB (peak %5d MB)",
+                phase, seconds, probes / seconds,
+                percentileMs(latencies, 0.50), percentileMs(latencies, 0.99), percentileMs(latencies, 1.0),
+                rows / seconds, usedHeap >> 20, peakHeap >> 20));
+    }
+
+    private static double percentileMs(long[] sorted, double quantile) {
+        if (sorted.length == 0) return Double.NaN;
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)] / 1e6;
+    }
+
+    /** Flushes the write-behind buffers first, so rows of the phase are not counted in the next one */
+    private long rowsWritten() {
+        app.getBean(ProbeWriteBuffer.class).flush();
+        app.getBean(ProbeTimeSeries.class).flush();
+        Gauge statusRows = meters.find("probe.write.rows").gauge();
+        Long samples = jdbc.queryForObject("SELECT COUNT(*) FROM probe_samples", Long.class);
+        Long history = jdbc.queryForObject("SELECT COUNT(*) FROM api_version_history", Long.class);
+        return (statusRows != null ? (long) statusRows.value() : 0)
+                + (samples != null ? samples : 0) + (history != null ? history : 0);
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        return options.containsKey(name) ? Integer.parseInt(options.get(name)) : defaultValue;
+    }
+
+    private static double doubleOption(Map<String, String> options, String name, double defaultValue) {
+        return options.containsKey(name) ? Double.parseDouble(options.get(name)) : defaultValue;
+    }
+}
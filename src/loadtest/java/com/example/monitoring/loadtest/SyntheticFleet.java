@@ -0,0 +1,142 @@
+package com.example.monitoring.loadtest;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thousands of simulated {@code /version} endpoints served by a few non-blocking servers, one
+ * per loopback address (127.0.0.1, 127.0.0.2, ...), so probes spread over several hosts like
+ * they would in production. Endpoint {@code n} answers on {@code /svc/{n}/version} with
+ * {@code {"service","version","status"}}.
+ * <p>
+ * Every request draws its behaviour: a log-normal latency given by its median and p99, a 503,
+ * a hang well past any probe timeout, or a body trickled out in chunks; each request can also
+ * bump the endpoint's patch version, which the monitor should record as a version change.
+ */
+public class SyntheticFleet implements AutoCloseable {
+
+    public record Options(int endpoints, int hosts, double latencyMedianMs, double latencyP99Ms,
+                          double errorRate, double timeoutRate, long hangMs,
+                          double slowBodyRate, long slowBodyMs, double versionChangeRate) {}
+
+    /** Requests served so far, by behaviour */
+    public record Stats(long requests, long errors, long hangs, long slowBodies, long versionChanges) {}
+
+    private static final double Z_99 = 2.326;
+
+    private final Options options;
+    private final double mu;
+    private final double sigma;
+    private final AtomicInteger[] patch;
+    private final List<DisposableServer> servers = new ArrayList<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong hangs = new AtomicLong();
+    private final AtomicLong slowBodies = new AtomicLong();
+    private final AtomicLong versionChanges = new AtomicLong();
+
+    public SyntheticFleet(Options options) {
+        this.options = options;
+        this.mu = Math.log(Math.max(1, options.latencyMedianMs()));
+        this.sigma = Math.max(0, Math.log(Math.max(options.latencyP99Ms(), options.latencyMedianMs())
+                / Math.max(1, options.latencyMedianMs())) / Z_99);
+        this.patch = new AtomicInteger[options.endpoints()];
+        for (int i = 0; i < patch.length; i++) {
+            patch[i] = new AtomicInteger();
+        }
+    }
+
+    public SyntheticFleet start() {
+        for (int h = 1; h <= options.hosts(); h++) {
+            servers.add(HttpServer.create()
+                    .host("127.0.0." + h)
+                    .port(0)
+                    .route(routes -> routes.get("/svc/{n}/version", (req, res) -> {
+                        int n;
+                        try {
+                            n = Integer.parseInt(req.param("n"));
+                        } catch (NumberFormatException e) {
+                            n = -1;
+                        }
+                        if (n < 0 || n >= patch.length) return res.status(HttpResponseStatus.NOT_FOUND).send();
+                        return respond(n, res);
+                    }))
+                    .bindNow());
+        }
+        return this;
+    }
+
+    /** Probe URL of endpoint {@code n}; endpoints are spread round-robin over the hosts */
+    public String url(int n) {
+        DisposableServer server = servers.get(n % servers.size());
+        return "http://" + server.host() + ":" + server.port() + "/svc/" + n + "/version";
+    }
+
+    public int size() {
+        return patch.length;
+    }
+
+    public Stats stats() {
+        return new Stats(requests.get(), errors.get(), hangs.get(), slowBodies.get(), versionChanges.get());
+    }
+
+    private Mono<Void> respond(int n, HttpServerResponse res) {
+        requests.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < options.versionChangeRate()) {
+            patch[n].incrementAndGet();
+            versionChanges.incrementAndGet();
+        }
+        Duration latency = Duration.ofMillis(Math.round(Math.exp(mu + sigma * random.nextGaussian())));
+
+        double roll = random.nextDouble();
+        if (roll < options.timeoutRate()) {
+            hangs.incrementAndGet();
+            return Mono.delay(Duration.ofMillis(options.hangMs()))
+                    .then(Mono.from(res.status(HttpResponseStatus.GATEWAY_TIMEOUT).send()));
+        }
+        roll -= options.timeoutRate();
+        if (roll < options.errorRate()) {
+            errors.incrementAndGet();
+            return Mono.delay(latency)
+                    .then(Mono.from(res.status(HttpResponseStatus.SERVICE_UNAVAILABLE)
+                            .header("Content-Type", "application/json")
+                            .sendString(Mono.just("{\"status\":\"DOWN\"}"))));
+        }
+        roll -= options.errorRate();
+
+        String body = "{\"service\":\"svc-" + n + "\",\"version\":\"" + version(n) + "\",\"status\":\"UP\"}";
+        res.header("Content-Type", "application/json");
+        if (roll < options.slowBodyRate()) {
+            slowBodies.incrementAndGet();
+            int chunks = 4;
+            int size = (body.length() + chunks - 1) / chunks;
+            Flux<String> parts = Flux.range(0, chunks)
+                    .map(i -> body.substring(Math.min(i * size, body.length()), Math.min((i + 1) * size, body.length())))
+                    .delayElements(Duration.ofMillis(Math.max(1, options.slowBodyMs() / chunks)));
+            return Mono.delay(latency).then(Mono.from(res.sendString(parts)));
+        }
+        return Mono.delay(latency).then(Mono.from(res.sendString(Mono.just(body))));
+    }
+
+    private String version(int n) {
+        return (1 + n % 3) + "." + (n % 7) + "." + patch[n].get();
+    }
+
+    @Override
+    public void close() {
+        servers.forEach(DisposableServer::disposeNow);
+    }
+}
@@ -63,6 +63,10 @@ public class SecurityConfig {
                         // Everything else under /api/** requires authentication
                         .requestMatchers("/api/**").authenticated()
 
+                        // Health stays open for load balancers; metrics and info need a login
+                        .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                        .requestMatchers("/actuator/**").authenticated()
+
                         // Allow all other routes so SPA can render
                         .anyRequest().permitAll()
                 );
@@ -83,6 +87,7 @@ public class SecurityConfig {
         ));
         cfg.setAllowedMethods(List.of("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         cfg.setAllowedHeaders(List.of("*"));
+        cfg.setExposedHeaders(List.of("ETag", "X-Next-Cursor"));
         cfg.setAllowCredentials(true);
         cfg.setMaxAge(3600L);
 
@@ -1,14 +1,43 @@
 package com.example.monitoring.controller;
 
+import com.example.monitoring.repo.Cursor;
+import com.example.monitoring.repo.KeysetPage;
 import com.example.monitoring.repo.ProjectRepository;
+import com.example.monitoring.repo.ProjectRepository.ProbeTarget;
+import com.example.monitoring.repo.RowStreamer;
 import com.example.monitoring.model.Entities.Api;
 import com.example.monitoring.model.Entities.Project;
+import com.example.monitoring.service.ChangeTracker;
+import com.example.monitoring.service.ComplianceMatrix;
+import com.example.monitoring.service.LatencyHistograms;
 import com.example.monitoring.service.MonitoringService;
+import com.example.monitoring.service.ProbePlanner;
+import com.example.monitoring.service.ProbeScheduler;
+import com.example.monitoring.service.ProbeSnapshotStore;
+import com.example.monitoring.service.ProbeSnapshotStore.ProbeSnapshot;
+import com.example.monitoring.service.ProbeTimeSeries;
+import com.example.monitoring.service.StatusEventBus;
+import com.example.monitoring.service.StatusEventBus.StatusEvent;
 import com.example.monitoring.service.VersionHistoryService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 
 @RestController
@@ -18,67 +47,311 @@ public class DataController {
     private final ProjectRepository repo;
     private final MonitoringService monitoring;
     private final VersionHistoryService versionHistory;
-
-    public DataController(ProjectRepository repo, MonitoringService monitoring, VersionHistoryService versionHistory) {
+    private final ProbeSnapshotStore snapshots;
+    private final ComplianceMatrix complianceMatrix;
+    private final StatusEventBus statusEvents;
+    private final ChangeTracker changes;
+    private final ProbeTimeSeries timeSeries;
+    private final LatencyHistograms latency;
+    private final RowStreamer rowStreamer;
+    private final ProbePlanner planner;
+    private final ProbeScheduler scheduler;
+    private final ObjectMapper mapper;
+
+    public DataController(ProjectRepository repo, MonitoringService monitoring, VersionHistoryService versionHistory,
+                          ProbeSnapshotStore snapshots, ComplianceMatrix complianceMatrix, StatusEventBus statusEvents,
+                          ChangeTracker changes, ProbeTimeSeries timeSeries,
+                          LatencyHistograms latency, RowStreamer rowStreamer, ProbePlanner planner,
+                          ProbeScheduler scheduler, ObjectMapper mapper) {
         this.repo = repo;
         this.monitoring = monitoring;
         this.versionHistory = versionHistory;
+        this.snapshots = snapshots;
+        this.complianceMatrix = complianceMatrix;
+        this.statusEvents = statusEvents;
+        this.changes = changes;
+        this.timeSeries = timeSeries;
+        this.latency = latency;
+        this.rowStreamer = rowStreamer;
+        this.planner = planner;
+        this.scheduler = scheduler;
+        this.mapper = mapper;
     }
 
     // ---------- DTOs ----------
     public record CreateProjectRequest(String name) {}
     public record AddApiRequest(String url, String environment, String region) {}
     public record UpdateApiRequest(String url, String environment, String region) {}
+    public record ProbeSettingsRequest(Integer intervalMs, Integer timeoutMs) {}
 
     // ---------- READ ----------
+
+    /**
+     * Full dashboard payload, or with {@code since=<dataVersion>} only the projects and APIs
+     * created, updated or deleted after that version. Responses carry an ETag derived from the
+     * data version, so an unchanged poll is answered with 304 and no body.
+     */
     @GetMapping("/projects")
-    public ResponseEntity<?> getProjects() {
-        List<Project> projects = repo.findAllProjects();
-        List<Api> apis = repo.findAllApis();
+    public ResponseEntity<StreamingResponseBody> getProjects(
+            @RequestParam(value = "since", required = false) Long since, WebRequest request) {
+        // Read the version before the data: anything changed meanwhile shows up again in the next delta
+        long dataVersion = changes.current();
+        String etag = "\"" + dataVersion + (since != null ? "-" + since : "") + "\"";
+        if (request.checkNotModified(etag)) {
+            return null; // 304, headers already set
+        }
+        // checkNotModified has also set the ETag header of this 200 response
+
+        if (since == null || !changes.canDiff(since)) {
+            // Full payload: written straight from the result sets, see writeProjectsFull
+            long seq = statusEvents.currentSeq();
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(streamJson(g -> writeProjectsFull(g, dataVersion, seq)));
+        }
+
+        Map<String, Object> payload = projectsDelta(since);
+        payload.put("dataVersion", dataVersion); // pass back as since=
+        payload.put("seq", statusEvents.currentSeq()); // resume point for /stream
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache()) // browsers revalidate with If-None-Match
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(jsonBody(payload));
+    }
+
+    /**
+     * Same document as before, but written row by row while the queries run, so nothing is
+     * collected in memory and the first bytes go out immediately. The three queries share one
+     * read-only transaction, i.e. one snapshot.
+     */
+    private void writeProjectsFull(JsonGenerator g, long dataVersion, long seq) throws IOException {
+        Instant now = Instant.now();
+        g.writeStartObject();
+
+        g.writeArrayFieldStart("projects");
+        long[] currentProject = {0};
+        boolean[] open = {false};
+        repo.streamProjectsWithApis(jsonRows(rs -> {
+            long projectId = rs.getLong("p_id");
+            if (!open[0] || currentProject[0] != projectId) {
+                if (open[0]) {
+                    g.writeEndArray();
+                    g.writeEndObject();
+                }
+                g.writeStartObject();
+                g.writeNumberField("id", projectId);
+                g.writeStringField("name", rs.getString("p_name"));
+                g.writeObjectField("createdAt", RowStreamer.value(rs, "p_created_at"));
+                g.writeArrayFieldStart("apis"); // always an array
+                currentProject[0] = projectId;
+                open[0] = true;
+            }
+            if (rs.getObject("id") != null) {
+                writeRow(g, rs, ProjectRepository.API_FIELDS, API_FIELD_NAMES);
+            }
+        }));
+        if (open[0]) {
+            g.writeEndArray();
+            g.writeEndObject();
+        }
+        g.writeEndArray();
+
+        g.writeArrayFieldStart("apis");
+        repo.streamApis(jsonRows(rs -> writeRow(g, rs, ProjectRepository.API_FIELDS, API_FIELD_NAMES)));
+        g.writeEndArray();
+
+        g.writeObjectFieldStart("apisMeta"); // <-- used by All APIs tab to render one-line-per-service
+        repo.streamApis(jsonRows(rs -> {
+            long apiId = rs.getLong("id");
+            g.writeObjectField(Long.toString(apiId), apiMeta(apiId, now));
+        }));
+        g.writeEndObject();
+
+        g.writeObjectField("fetchedAt", now);
+        g.writeNumberField("dataVersion", dataVersion); // pass back as since=
+        g.writeNumberField("seq", seq); // resume point for /stream
+        g.writeEndObject();
+    }
 
-        // Group APIs by project
-        Map<Long, List<Api>> byProject = new HashMap<>();
+    private Map<String, Object> projectsDelta(long since) {
+        Set<Long> changedProjects = new HashSet<>(changes.projectsChangedSince(since));
+        List<Project> projects = changedProjects.isEmpty() ? List.of()
+                : repo.findAllProjects().stream().filter(p -> changedProjects.contains(p.id())).toList();
+        List<Api> apis = repo.findApisByIds(changes.apisChangedSince(since));
+
+        Instant now = Instant.now();
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("delta", true);
+        payload.put("since", since);
+        payload.put("projects", projects);
+        payload.put("apis", apis);
+        payload.put("apisMeta", apisMeta(apis, now));
+        payload.put("deletedProjectIds", changes.projectsDeletedSince(since));
+        payload.put("deletedApiIds", changes.apisDeletedSince(since));
+        payload.put("fetchedAt", now);
+        return payload;
+    }
+
+    /**
+     * Service/version metadata comes from the background probe snapshot (see ProbeScheduler);
+     * the read endpoints never call the monitored services themselves.
+     */
+    private Map<Long, Map<String, Object>> apisMeta(List<Api> apis, Instant now) {
+        Map<Long, Map<String, Object>> metaById = new HashMap<>();
         for (Api a : apis) {
-            byProject.computeIfAbsent(a.projectId(), k -> new ArrayList<>()).add(a);
+            metaById.put(a.id(), apiMeta(a.id(), now));
         }
+        return metaById;
+    }
 
-        // Build response
-        List<Map<String, Object>> out = new ArrayList<>();
-        for (Project p : projects) {
-            Map<String, Object> row = new LinkedHashMap<>();
-            row.put("id", p.id());
-            row.put("name", p.name());
-            row.put("createdAt", p.createdAt());
-            row.put("apis", byProject.getOrDefault(p.id(), List.of())); // always an array
-            out.add(row);
+    private Map<String, Object> apiMeta(Long apiId, Instant now) {
+        Map<String, Object> meta = new LinkedHashMap<>();
+        ProbeSnapshot snap = snapshots.get(apiId);
+        if (snap != null) {
+            if (snap.version() != null) meta.put("version", snap.version());
+            if (snap.service() != null) meta.put("service", snap.service());
+            meta.put("checkedAt", snap.checkedAt());
+            meta.put("ageMs", snap.ageMs(now));
+        } else {
+            meta.put("checkedAt", null);
+            meta.put("ageMs", null); // not probed yet
         }
+        return meta;
+    }
 
-        // Probe metadata for each API (service/version). Keep fast with 3s timeout inside service.
-        Map<Long, Map<String, String>> metaById = new HashMap<>();
-        for (Api a : apis) {
-            Map<String, String> meta = monitoring.fetchServiceInfo(a.url());
-            metaById.put(a.id(), meta);
-
-            // Update version history if we got version info
-            if (!meta.isEmpty() && meta.containsKey("version")) {
-                String version = meta.get("version");
-                String serviceName = meta.getOrDefault("service", versionHistory.extractServiceFromUrl(a.url()));
-
-                // Update version history with smart detection
-                versionHistory.updateApiVersion(
-                        a.id(), version, a.environment(), a.region(),
-                        a.status(), a.responseTime(), serviceName, a.url(), a.projectId()
-                );
+    // ---------- STREAMED JSON ----------
+
+    private static final List<String> API_FIELD_NAMES = List.copyOf(ProjectRepository.API_FIELDS.keySet());
+
+    private interface JsonBody {
+        void write(JsonGenerator g) throws IOException;
+    }
+
+    private interface JsonRow {
+        void write(ResultSet rs) throws IOException, SQLException;
+    }
+
+    /**
+     * Response body written by {@code body} inside one read-only transaction. Once the first
+     * bytes are out an error can only truncate the response, so it is logged.
+     */
+    private StreamingResponseBody streamJson(JsonBody body) {
+        return out -> {
+            try (JsonGenerator g = mapper.getFactory().createGenerator(out)) {
+                rowStreamer.inReadOnlyTransaction(() -> {
+                    try {
+                        body.write(g);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause(); // usually the client went away
+            } catch (RuntimeException e) {
+                System.err.println("Streamed response aborted: " + e.getMessage());
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * An in-memory value for an endpoint whose return type is a streamed body.
+     */
+    private StreamingResponseBody jsonBody(Object value) {
+        return out -> mapper.writeValue(out, value);
+    }
+
+    private static RowCallbackHandler jsonRows(JsonRow row) {
+        return rs -> {
+            try {
+                row.write(rs);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+        };
+    }
+
+    private static void writeRow(JsonGenerator g, ResultSet rs, Map<String, String> columns, List<String> fields)
+            throws IOException, SQLException {
+        g.writeStartObject();
+        for (String field : fields) {
+            g.writeObjectField(field, RowStreamer.value(rs, columns.get(field)));
         }
+        g.writeEndObject();
+    }
 
-        Map<String, Object> payload = new LinkedHashMap<>();
-        payload.put("projects", out);
-        payload.put("apis", apis);
-        payload.put("allApis", apis);
-        payload.put("apisMeta", metaById); // <-- used by All APIs tab to render one-line-per-service
-        payload.put("fetchedAt", Instant.now());
-        return ResponseEntity.ok(payload);
+    // ---------- PAGED LISTINGS ----------
+
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * APIs, newest first, one page at a time. {@code fields=id,status,responseTime} limits the
+     * columns read and returned.
+     */
+    @GetMapping("/apis")
+    public ResponseEntity<?> listApis(@RequestParam(value = "projectId", required = false) Long projectId,
+                                      @RequestParam(value = "cursor", required = false) String cursor,
+                                      @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                      @RequestParam(value = "fields", required = false) String fields) {
+        KeysetPage page;
+        try {
+            page = repo.findApisPage(projectId, Cursor.decode(cursor), pageSize(limit),
+                    KeysetPage.fields(ProjectRepository.API_FIELDS, fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        return paged(page);
+    }
+
+    @GetMapping("/projects/{id}/apis")
+    public ResponseEntity<?> listProjectApis(@PathVariable("id") Long projectId,
+                                             @RequestParam(value = "cursor", required = false) String cursor,
+                                             @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                             @RequestParam(value = "fields", required = false) String fields) {
+        return listApis(projectId, cursor, limit, fields);
+    }
+
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * The body stays a plain JSON array; the token for the next page, if any, goes in the
+     * X-Next-Cursor header (pass it back as {@code cursor=}).
+     */
+    private static ResponseEntity<?> paged(KeysetPage page) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            ok.header("X-Next-Cursor", page.nextCursor());
+        }
+        return ok.body(page.items());
+    }
+
+    // ---------- PUSH ----------
+
+    /**
+     * Server-sent status/latency/version deltas. Resume after a reconnect with ?since=<seq> or the
+     * Last-Event-ID header (sent automatically by EventSource); a "resync" event means the gap was
+     * too large and the client should reload /projects.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<StatusEvent>> stream(
+            @RequestParam(value = "since", required = false) Long since,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        Long from = since != null ? since : lastEventId;
+
+        Flux<ServerSentEvent<StatusEvent>> events = statusEvents.stream(from)
+                .map(e -> ServerSentEvent.builder(e)
+                        .id(Long.toString(e.seq()))
+                        .event(e.type())
+                        .build());
+        // Comment lines flush the headers right away and keep idle connections open through proxies
+        Flux<ServerSentEvent<StatusEvent>> keepAlive = Flux.interval(Duration.ZERO, Duration.ofSeconds(15))
+                .map(i -> ServerSentEvent.<StatusEvent>builder().comment("keepalive").build());
+        return Flux.merge(events, keepAlive);
     }
 
     // ---------- CREATE PROJECT ----------
@@ -88,16 +361,30 @@ public class DataController {
             return ResponseEntity.badRequest().body(Map.of("error", "Project name is required"));
         }
         long id = repo.createProject(body.name().trim());
+        changes.projectChanged(id);
         return ResponseEntity.ok(Map.of("id", id, "name", body.name().trim()));
     }
 
     // ---------- DELETE PROJECT ----------
     @DeleteMapping("/projects/{id}")
     public ResponseEntity<?> deleteProject(@PathVariable("id") Long id) {
+        List<Api> apis = repo.findApisByProject(id);
         int rows = repo.deleteProject(id);
         if (rows == 0) {
             return ResponseEntity.notFound().build();
         }
+        changes.projectDeleted(id);
+        scheduler.apisDeleted(apis.stream().map(Api::id).toList());
+        // APIs go with their project (ON DELETE CASCADE)
+        for (Api a : apis) {
+            versionHistory.invalidateCurrentVersion(a.id());
+            snapshots.remove(a.id());
+            complianceMatrix.remove(a.id());
+            statusEvents.onRemoved(a.id());
+            timeSeries.forget(a.id());
+            latency.remove(a.id());
+            planner.reset(a.id());
+        }
         return ResponseEntity.noContent().build();
     }
 
@@ -112,25 +399,13 @@ public class DataController {
         String region = (body.region() == null || body.region().isBlank()) ? "paris-1" : body.region().trim();
 
         long apiId = repo.addApi(projectId, body.url().trim(), env, region);
+        changes.apiChanged(apiId);
+        scheduler.targetsChanged();
 
-        // Perform a first check & meta probe to warm data
-        monitoring.checkAndUpdate(apiId, body.url().trim());
-        Map<String, String> meta = monitoring.fetchServiceInfo(body.url().trim());
-
-        // Create initial version history entry
-        if (!meta.isEmpty() && meta.containsKey("version")) {
-            String version = meta.get("version");
-            String serviceName = meta.getOrDefault("service", versionHistory.extractServiceFromUrl(body.url().trim()));
-
-            // Get the API to get its current status
-            Api api = repo.getApiById(apiId);
-            if (api != null) {
-                versionHistory.updateApiVersion(
-                        apiId, version, env, region,
-                        api.status(), api.responseTime(), serviceName, body.url().trim(), projectId
-                );
-            }
-        }
+        // Perform a first probe to warm data; status, version and history are recorded from one request
+        MonitoringService.CheckResult check = monitoring.checkAndUpdate(
+                new ProbeTarget(apiId, projectId, body.url().trim(), env, region, null, null));
+        Map<String, String> meta = check.meta();
 
         return ResponseEntity.ok(Map.of(
                 "id", apiId,
@@ -157,25 +432,21 @@ public class DataController {
         if (rows == 0) {
             return ResponseEntity.notFound().build();
         }
-
-        // Perform a check & meta probe to refresh data
-        monitoring.checkAndUpdate(apiId, body.url().trim());
-        Map<String, String> meta = monitoring.fetchServiceInfo(body.url().trim());
-
-        // Update version history
-        if (!meta.isEmpty() && meta.containsKey("version")) {
-            String version = meta.get("version");
-            String serviceName = meta.getOrDefault("service", versionHistory.extractServiceFromUrl(body.url().trim()));
-
-            // Get the API to get its project ID and current status
-            Api api = repo.getApiById(apiId);
-            if (api != null) {
-                versionHistory.updateApiVersion(
-                        apiId, version, env, region,
-                        api.status(), api.responseTime(), serviceName, body.url().trim(), api.projectId()
-                );
-            }
+        changes.apiChanged(apiId);
+
+        // URL/environment may have moved; the re-probe reloads the version and the matrix cell
+        versionHistory.invalidateCurrentVersion(apiId);
+        complianceMatrix.remove(apiId);
+        planner.reset(apiId);
+        scheduler.targetsChanged();
+
+        // Re-probe to refresh status, version and history from one request
+        Api api = repo.getApiById(apiId);
+        if (api == null) {
+            return ResponseEntity.notFound().build(); // deleted meanwhile
         }
+        MonitoringService.CheckResult check = monitoring.checkAndUpdate(ProbeTarget.of(api));
+        Map<String, String> meta = check.meta();
 
         return ResponseEntity.ok(Map.of(
                 "id", apiId,
@@ -186,6 +457,44 @@ public class DataController {
         ));
     }
 
+    // ---------- PROBE SETTINGS ----------
+
+    /**
+     * Fixed probe interval and timeout for one API (null clears an override), stored in the apis
+     * row. The API is probed again at the next scheduler tick.
+     */
+    @PutMapping("/apis/{id}/probe-settings")
+    public ResponseEntity<?> updateProbeSettings(@PathVariable("id") Long apiId,
+                                                 @RequestBody ProbeSettingsRequest body) {
+        if (body == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Probe settings are required"));
+        }
+        if ((body.intervalMs() != null && body.intervalMs() < 1000)
+                || (body.timeoutMs() != null && (body.timeoutMs() < 100 || body.timeoutMs() > 120_000))) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "intervalMs must be at least 1000 and timeoutMs between 100 and 120000"));
+        }
+        int rows = repo.updateProbeSettings(apiId, body.intervalMs(), body.timeoutMs());
+        if (rows == 0) {
+            return ResponseEntity.notFound().build();
+        }
+        planner.reset(apiId);
+        scheduler.targetsChanged();
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("id", apiId);
+        out.put("intervalMs", body.intervalMs());
+        out.put("timeoutMs", body.timeoutMs());
+        return ResponseEntity.ok(out);
+    }
+
+    /** Where the adaptive scheduler stands for one API: next probe, interval and circuit state */
+    @GetMapping("/apis/{id}/probe-schedule")
+    public ResponseEntity<?> getProbeSchedule(@PathVariable("id") Long apiId) {
+        ProbePlanner.ApiSchedule schedule = planner.state(apiId);
+        return schedule != null ? ResponseEntity.ok(schedule) : ResponseEntity.notFound().build();
+    }
+
     // ---------- DELETE API ----------
     @DeleteMapping("/apis/{id}")
     public ResponseEntity<?> deleteApi(@PathVariable("id") Long apiId) {
@@ -193,55 +502,174 @@ public class DataController {
         if (rows == 0) {
             return ResponseEntity.notFound().build();
         }
+        versionHistory.invalidateCurrentVersion(apiId);
+        snapshots.remove(apiId);
+        complianceMatrix.remove(apiId);
+        statusEvents.onRemoved(apiId);
+        timeSeries.forget(apiId);
+        latency.remove(apiId);
+        planner.reset(apiId);
+        scheduler.apisDeleted(List.of(apiId));
         return ResponseEntity.noContent().build();
     }
 
+    // ---------- LATENCY TIME SERIES ----------
+
+    /**
+     * p50/p95/p99/max probe latency over a sliding window ({@code 5m}, {@code 1h} or {@code 24h}),
+     * per API, per project, per environment and overall. Served from in-memory histograms.
+     */
+    @GetMapping("/latency-percentiles")
+    public ResponseEntity<?> getLatencyPercentiles(@RequestParam(value = "window", defaultValue = "5m") String window) {
+        LatencyHistograms.Window w;
+        try {
+            w = LatencyHistograms.Window.fromLabel(window);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        long now = System.currentTimeMillis();
+
+        Map<Long, LatencyHistograms.Percentiles> byApi = new LinkedHashMap<>();
+        Map<Long, List<Long>> projectApis = new LinkedHashMap<>();
+        Map<String, List<Long>> environmentApis = new LinkedHashMap<>();
+        List<Long> allIds = new ArrayList<>();
+        for (Api a : repo.findAllApis()) {
+            byApi.put(a.id(), latency.percentiles(a.id(), w, now));
+            projectApis.computeIfAbsent(a.projectId(), k -> new ArrayList<>()).add(a.id());
+            environmentApis.computeIfAbsent(Objects.requireNonNullElse(a.environment(), "unknown"), k -> new ArrayList<>()).add(a.id());
+            allIds.add(a.id());
+        }
+        Map<Long, LatencyHistograms.Percentiles> byProject = new LinkedHashMap<>();
+        projectApis.forEach((projectId, ids) -> byProject.put(projectId, latency.merged(ids, w, now)));
+        Map<String, LatencyHistograms.Percentiles> byEnvironment = new LinkedHashMap<>();
+        environmentApis.forEach((env, ids) -> byEnvironment.put(env, latency.merged(ids, w, now)));
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("window", w.label());
+        payload.put("overall", latency.merged(allIds, w, now));
+        payload.put("projects", byProject);
+        payload.put("environments", byEnvironment);
+        payload.put("apis", byApi);
+        payload.put("timestamp", Instant.ofEpochMilli(now));
+        return ResponseEntity.ok(payload);
+    }
+
+    @GetMapping("/health-summary")
+    public ResponseEntity<?> getHealthSummary() {
+        return ResponseEntity.ok(monitoring.getHealthSummary());
+    }
+
+    /**
+     * Probe latency and error counts for one API over {@code [from, to)} (ISO-8601 instants;
+     * default: the last 24 hours). Without {@code resolution} (raw, 1m, 1h, 1d) the finest
+     * resolution that covers the window in a bounded number of points is used.
+     */
+    @GetMapping("/apis/{apiId}/latency")
+    public ResponseEntity<?> getLatencySeries(@PathVariable("apiId") Long apiId,
+                                              @RequestParam(value = "from", required = false) String from,
+                                              @RequestParam(value = "to", required = false) String to,
+                                              @RequestParam(value = "resolution", required = false) String resolution) {
+        Instant end;
+        Instant start;
+        ProbeTimeSeries.Resolution res;
+        try {
+            end = to != null ? Instant.parse(to) : Instant.now();
+            start = from != null ? Instant.parse(from) : end.minus(Duration.ofHours(24));
+            res = resolution != null ? ProbeTimeSeries.Resolution.fromLabel(resolution) : timeSeries.resolutionFor(start, end);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        if (!start.isBefore(end)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "from must be before to"));
+        }
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("apiId", apiId);
+        payload.put("from", start);
+        payload.put("to", end);
+        payload.put("resolution", res.label());
+        payload.put("points", timeSeries.range(apiId, start, end, res));
+        return ResponseEntity.ok(payload);
+    }
+
+    // ---------- COMPLIANCE MATRIX ----------
+
+    /**
+     * Service × environment compliance matrix, maintained as versions change; no upstream calls.
+     * Rows are keyed {@code <service>-<projectId>}; {@code ?service=} returns that service's rows
+     * in every project.
+     */
+    @GetMapping("/compliance-matrix")
+    public ResponseEntity<?> getComplianceMatrix(@RequestParam(value = "service", required = false) String service) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("revision", complianceMatrix.revision());
+        if (service != null) {
+            Map<String, ComplianceMatrix.ServiceRow> rows = complianceMatrix.rowsOf(service);
+            if (rows.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            payload.put("services", rows);
+        } else {
+            payload.put("services", complianceMatrix.rows());
+        }
+        payload.put("timestamp", Instant.now());
+        return ResponseEntity.ok(payload);
+    }
+
     // ---------- VERSION HISTORY ENDPOINTS ----------
 
     /**
-     * Get version history for an API
+     * Get version history for an API, newest first, one page at a time (see {@link #paged}).
      */
     @GetMapping("/apis/{apiId}/version-history")
     public ResponseEntity<?> getVersionHistory(
-            @PathVariable Long apiId,
-            @RequestParam(required = false) String environment) {
-
+            @PathVariable("apiId") Long apiId,
+            @RequestParam(value = "environment", required = false) String environment,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(value = "fields", required = false) String fields) {
+        KeysetPage page;
         try {
-            List<VersionHistoryService.VersionHistory> history = versionHistory.getVersionHistory(apiId, environment);
-
-            // Convert to maps for JSON response
-            List<Map<String, Object>> response = new ArrayList<>();
-            for (VersionHistoryService.VersionHistory vh : history) {
-                Map<String, Object> item = new LinkedHashMap<>();
-                item.put("id", vh.id());
-                item.put("api_id", vh.apiId());
-                item.put("version", vh.version());
-                item.put("environment", vh.environment());
-                item.put("region", vh.region());
-                item.put("status", vh.status());
-                item.put("response_time", vh.responseTime());
-                item.put("detected_at", vh.detectedAt());
-                item.put("service_name", vh.serviceName());
-                item.put("url", vh.url());
-                item.put("project_id", vh.projectId());
-                item.put("previous_version", vh.previousVersion());
-                item.put("version_change_type", vh.versionChangeType());
-                item.put("is_active", vh.isActive());
-                response.add(item);
-            }
+            page = versionHistory.getVersionHistory(apiId, environment, Cursor.decode(cursor), pageSize(limit),
+                    KeysetPage.fields(VersionHistoryService.HISTORY_FIELDS, fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        return paged(page);
+    }
 
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            System.err.println("Error fetching version history: " + e.getMessage());
-            return ResponseEntity.ok(new ArrayList<>());
+    /**
+     * Whole version history of an API as one JSON array, streamed from the database row by row
+     * (for exports; the UI uses the paged endpoint above).
+     */
+    @GetMapping("/apis/{apiId}/version-history/export")
+    public ResponseEntity<StreamingResponseBody> exportVersionHistory(
+            @PathVariable("apiId") Long apiId,
+            @RequestParam(value = "environment", required = false) String environment,
+            @RequestParam(value = "fields", required = false) String fields) {
+        List<String> selected;
+        try {
+            selected = KeysetPage.fields(VersionHistoryService.HISTORY_FIELDS, fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(jsonBody(Map.of("error", e.getMessage())));
         }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(streamJson(g -> {
+                    g.writeStartArray();
+                    versionHistory.streamVersionHistory(apiId, environment, selected,
+                            jsonRows(rs -> writeRow(g, rs, VersionHistoryService.HISTORY_FIELDS, selected)));
+                    g.writeEndArray();
+                }));
     }
 
     /**
      * Get version analytics for an API
      */
     @GetMapping("/apis/{apiId}/version-analytics")
-    public ResponseEntity<?> getVersionAnalytics(@PathVariable Long apiId) {
+    public ResponseEntity<?> getVersionAnalytics(@PathVariable("apiId") Long apiId) {
         try {
             Map<String, String> latestVersions = versionHistory.getLatestVersionsByEnvironment(apiId);
             Map<String, Object> stats = versionHistory.getVersionChangeStats(apiId, null);
@@ -260,4 +688,15 @@ public class DataController {
             return ResponseEntity.ok(error);
         }
     }
+
+    /**
+     * Latest version per environment for every API, keyed by API id.
+     */
+    @GetMapping("/latest-versions")
+    public ResponseEntity<?> getLatestVersions() {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("apis", versionHistory.getLatestVersionsForAllApis());
+        payload.put("timestamp", Instant.now());
+        return ResponseEntity.ok(payload);
+    }
 }
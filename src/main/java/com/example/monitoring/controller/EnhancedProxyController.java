@@ -1,22 +1,24 @@
 package com.example.monitoring.controller;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.example.monitoring.service.ComplianceRules;
+import com.example.monitoring.service.ProbeHttpClient;
+import com.example.monitoring.service.ServiceInfo;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.net.URI;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 
 @RestController
 @RequestMapping("/api/enhanced-proxy")
@@ -34,14 +36,16 @@ public class EnhancedProxyController {
         public List<String> environments; // corresponding environments for each URL
     }
 
-    private final RestTemplate rest;
+    private final ProbeHttpClient http;
     private final ObjectMapper mapper = new ObjectMapper();
 
-    public EnhancedProxyController() {
-        var f = new SimpleClientHttpRequestFactory();
-        f.setConnectTimeout(5000);
-        f.setReadTimeout(5000);
-        this.rest = new RestTemplate(f);
+    private static final Duration CHECK_TIMEOUT = Duration.ofSeconds(5);
+    private static final int MAX_PARALLEL_FETCHES = 32;
+    static final int MAX_BATCH_SERVICES = 500;
+    static final int MAX_BATCH_URLS = 2000;
+
+    public EnhancedProxyController(ProbeHttpClient http) {
+        this.http = http;
     }
 
     @PostMapping("/check")
@@ -51,36 +55,26 @@ public class EnhancedProxyController {
         }
         
         try {
-            var start = Instant.now();
-            var resp = rest.getForEntity(URI.create(req.url), String.class);
-            var elapsed = Duration.between(start, Instant.now()).toMillis();
-
-            String version = null;
-            String service = null;
-
-            if (resp.getBody() != null && !resp.getBody().isBlank()) {
-                try {
-                    JsonNode node = mapper.readTree(resp.getBody());
-                    version = node.path("version").isTextual() ? node.get("version").asText() : null;
-                    service = node.path("service").isTextual() ? node.get("service").asText() : null;
-                } catch (Exception ignored) {
-                    // Body wasn't JSON – treat as plain health response
-                }
-            }
+            var resp = http.get(req.url, CHECK_TIMEOUT).block();
+            var elapsed = resp.elapsedMs();
+
+            ServiceInfo info = ServiceInfo.parse(mapper, resp.body());
 
             Map<String, Object> out = new HashMap<>();
-            out.put("status", resp.getStatusCode().value() >= 200 && resp.getStatusCode().value() < 400 ? "online" : "offline");
-            out.put("httpStatus", resp.getStatusCode().value());
+            out.put("status", resp.httpStatus() >= 200 && resp.httpStatus() < 400 ? "online" : "offline");
+            out.put("httpStatus", resp.httpStatus());
             out.put("responseTime", (int) Math.min(elapsed, Integer.MAX_VALUE));
-            out.put("version", version);
-            out.put("service", service);
+            out.put("version", info.version());
+            out.put("service", info.service());
             out.put("url", req.url);
             out.put("apiId", req.apiId);
             out.put("environment", req.environment);
             out.put("region", "paris"); // All APIs are in Paris region
 
             return ResponseEntity.ok(out);
-        } catch (RestClientException ex) {
+        } catch (IllegalArgumentException badUrl) {
+            return bad("Invalid URL: " + req.url);
+        } catch (RuntimeException ex) {
             Map<String, Object> out = new HashMap<>();
             out.put("status", "offline");
             out.put("httpStatus", 0);
@@ -92,8 +86,16 @@ public class EnhancedProxyController {
             out.put("region", "paris");
             out.put("error", ex.getClass().getSimpleName() + ": " + ex.getMessage());
             return ResponseEntity.ok(out);
-        } catch (IllegalArgumentException badUrl) {
-            return bad("Invalid URL: " + req.url);
+        }
+    }
+
+    public static class BatchComplianceCheckRequest {
+        public List<ServiceUrls> services;
+
+        public static class ServiceUrls {
+            public String service;
+            public List<String> urls;
+            public List<String> environments;
         }
     }
 
@@ -103,75 +105,167 @@ public class EnhancedProxyController {
             return bad("URLs and environments arrays must be provided and have the same length");
         }
 
-        Map<String, Map<String, Object>> results = new HashMap<>();
-        List<String> violations = new ArrayList<>();
-
-        // Fetch all API data
-        for (int i = 0; i < req.urls.size(); i++) {
-            String url = req.urls.get(i);
-            String env = req.environments.get(i);
-            
-            try {
-                var resp = rest.getForEntity(URI.create(url), String.class);
-                if (resp.getBody() != null && !resp.getBody().isBlank()) {
-                    JsonNode node = mapper.readTree(resp.getBody());
-                    String version = node.path("version").isTextual() ? node.get("version").asText() : null;
-                    String service = node.path("service").isTextual() ? node.get("service").asText() : null;
-                    
+        // Fetch all environments concurrently
+        Map<String, Map<String, Object>> results = fetchEnvironments(req.urls, req.environments)
+                .collectList()
+                .map(this::toResultMap)
+                .block();
+
+        return ResponseEntity.ok(complianceResponse(results));
+    }
+
+    /**
+     * Same check as /compliance-check, streamed as NDJSON: one line per environment as soon as
+     * its version arrives, then a final summary line with the violations. An invalid request is
+     * rejected with 400 before anything is streamed.
+     */
+    @PostMapping(value = "/compliance-check/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Map<String, Object>> complianceCheckStream(@Valid @RequestBody ComplianceCheckRequest req) {
+        if (req.urls == null || req.environments == null || req.urls.size() != req.environments.size()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "URLs and environments arrays must be provided and have the same length");
+        }
+
+        return Flux.defer(() -> {
+            Map<String, Map<String, Object>> results = new ConcurrentHashMap<>();
+            Flux<Map<String, Object>> environments = Flux.range(0, req.urls.size())
+                    .flatMap(i -> fetchEnvironment(req.urls.get(i), req.environments.get(i)), MAX_PARALLEL_FETCHES)
+                    .doOnNext(e -> results.put(e.getKey(), e.getValue()))
+                    .map(e -> {
+                        Map<String, Object> line = new HashMap<>(e.getValue());
+                        line.put("type", "environment");
+                        line.put("environment", e.getKey());
+                        return line;
+                    });
+            Mono<Map<String, Object>> summary = Mono.fromSupplier(() -> {
+                Map<String, Object> line = complianceResponse(results);
+                line.remove("results");
+                line.put("type", "summary");
+                return line;
+            });
+            return environments.concatWith(summary);
+        });
+    }
+
+    /**
+     * Compliance check for many services in one request (at most {@value #MAX_BATCH_SERVICES}
+     * services and {@value #MAX_BATCH_URLS} URLs). The URLs of all services share one pool of
+     * {@value #MAX_PARALLEL_FETCHES} concurrent fetches.
+     */
+    @PostMapping("/compliance-check/batch")
+    public ResponseEntity<?> complianceCheckBatch(@RequestBody BatchComplianceCheckRequest req) {
+        if (req.services == null || req.services.isEmpty()) {
+            return bad("services array must be provided");
+        }
+        if (req.services.size() > MAX_BATCH_SERVICES) {
+            return bad("At most " + MAX_BATCH_SERVICES + " services per request");
+        }
+        List<int[]> fetches = new ArrayList<>(); // {service index, url index}
+        for (int s = 0; s < req.services.size(); s++) {
+            BatchComplianceCheckRequest.ServiceUrls svc = req.services.get(s);
+            if (svc == null || !StringUtils.hasText(svc.service) || svc.urls == null || svc.environments == null
+                    || svc.urls.size() != svc.environments.size()) {
+                return bad("Each service needs a name plus urls and environments arrays of the same length");
+            }
+            for (int u = 0; u < svc.urls.size(); u++) {
+                fetches.add(new int[]{s, u});
+            }
+        }
+        if (fetches.size() > MAX_BATCH_URLS) {
+            return bad("At most " + MAX_BATCH_URLS + " URLs per request");
+        }
+
+        // One flat fan-out, so the whole request never has more than MAX_PARALLEL_FETCHES calls open
+        List<List<Map.Entry<String, Map<String, Object>>>> perService = new ArrayList<>();
+        for (int s = 0; s < req.services.size(); s++) {
+            perService.add(new ArrayList<>());
+        }
+        Flux.fromIterable(fetches)
+                .flatMapSequential(f -> {
+                    BatchComplianceCheckRequest.ServiceUrls svc = req.services.get(f[0]);
+                    return fetchEnvironment(svc.urls.get(f[1]), svc.environments.get(f[1]))
+                            .map(e -> Map.entry(f[0], e));
+                }, MAX_PARALLEL_FETCHES)
+                .doOnNext(e -> perService.get(e.getKey()).add(e.getValue()))
+                .then()
+                .block();
+
+        Map<String, Object> services = new LinkedHashMap<>();
+        for (int s = 0; s < req.services.size(); s++) {
+            services.put(req.services.get(s).service, complianceResponse(toResultMap(perService.get(s))));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("services", services);
+        response.put("timestamp", Instant.now().toString());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Fetches every (url, environment) pair concurrently, emitting in request order.
+     */
+    private Flux<Map.Entry<String, Map<String, Object>>> fetchEnvironments(List<String> urls, List<String> environments) {
+        return Flux.range(0, urls.size())
+                .flatMapSequential(i -> fetchEnvironment(urls.get(i), environments.get(i)), MAX_PARALLEL_FETCHES);
+    }
+
+    private Mono<Map.Entry<String, Map<String, Object>>> fetchEnvironment(String url, String env) {
+        return http.get(url, CHECK_TIMEOUT)
+                .flatMap(resp -> {
+                    if (resp.httpStatus() >= 400) {
+                        return Mono.error(new IllegalStateException(resp.httpStatus() + " from " + url));
+                    }
+                    if (resp.body() == null || resp.body().isBlank()) {
+                        return Mono.empty();
+                    }
+                    return Mono.fromCallable(() -> {
+                        ServiceInfo info = ServiceInfo.parse(mapper, resp.body());
+
+                        Map<String, Object> envData = new HashMap<>();
+                        envData.put("version", info.version());
+                        envData.put("service", info.service());
+                        envData.put("url", url);
+                        envData.put("status", "online");
+                        return Map.entry(env, envData);
+                    });
+                })
+                .onErrorResume(ex -> {
                     Map<String, Object> envData = new HashMap<>();
-                    envData.put("version", version);
-                    envData.put("service", service);
+                    envData.put("version", null);
+                    envData.put("service", null);
                     envData.put("url", url);
-                    envData.put("status", "online");
-                    
-                    results.put(env, envData);
-                }
-            } catch (Exception ex) {
-                Map<String, Object> envData = new HashMap<>();
-                envData.put("version", null);
-                envData.put("service", null);
-                envData.put("url", url);
-                envData.put("status", "offline");
-                envData.put("error", ex.getMessage());
-                
-                results.put(env, envData);
-            }
+                    envData.put("status", "offline");
+                    envData.put("error", ex.getMessage());
+                    return Mono.just(Map.entry(env, envData));
+                });
+    }
+
+    private Map<String, Map<String, Object>> toResultMap(List<Map.Entry<String, Map<String, Object>>> entries) {
+        // Later entries win for a repeated environment, as with the sequential loop
+        Map<String, Map<String, Object>> results = new HashMap<>();
+        for (Map.Entry<String, Map<String, Object>> e : entries) {
+            results.put(e.getKey(), e.getValue());
         }
+        return results;
+    }
 
-        // Perform compliance validation
-        violations.addAll(validateVersionCompliance(results));
+    private Map<String, Object> complianceResponse(Map<String, Map<String, Object>> results) {
+        List<String> violations = validateVersionCompliance(results);
 
         Map<String, Object> response = new HashMap<>();
         response.put("results", results);
         response.put("violations", violations);
         response.put("compliant", violations.isEmpty());
         response.put("timestamp", Instant.now().toString());
-
-        return ResponseEntity.ok(response);
+        return response;
     }
 
     private List<String> validateVersionCompliance(Map<String, Map<String, Object>> results) {
-        List<String> violations = new ArrayList<>();
-        
-        String devVersion = getVersion(results, "dev");
-        String uatVersion = getVersion(results, "uat");
-        String oatVersion = getVersion(results, "oat");
-        String prodVersion = getVersion(results, "prod");
-
-        // Version comparison logic
-        if (prodVersion != null && oatVersion != null && compareVersions(prodVersion, oatVersion) > 0) {
-            violations.add("CRITICAL: PROD version (" + prodVersion + ") is higher than OAT version (" + oatVersion + ")");
-        }
-        
-        if (prodVersion != null && uatVersion != null && compareVersions(prodVersion, uatVersion) > 0) {
-            violations.add("CRITICAL: PROD version (" + prodVersion + ") is higher than UAT version (" + uatVersion + ")");
+        Map<String, String> versions = new HashMap<>();
+        for (String env : List.of("dev", "uat", "oat", "prod")) {
+            versions.put(env, getVersion(results, env));
         }
-        
-        if (oatVersion != null && uatVersion != null && compareVersions(oatVersion, uatVersion) > 0) {
-            violations.add("WARNING: OAT version (" + oatVersion + ") is higher than UAT version (" + uatVersion + ")");
-        }
-
-        return violations;
+        return ComplianceRules.validate(versions);
     }
 
     private String getVersion(Map<String, Map<String, Object>> results, String env) {
@@ -179,26 +273,6 @@ public class EnhancedProxyController {
         return envData != null ? (String) envData.get("version") : null;
     }
 
-    private int compareVersions(String version1, String version2) {
-        if (version1 == null || version2 == null) return 0;
-        
-        String[] v1Parts = version1.split("\\.");
-        String[] v2Parts = version2.split("\\.");
-        
-        int maxLength = Math.max(v1Parts.length, v2Parts.length);
-        
-        for (int i = 0; i < maxLength; i++) {
-            int v1Part = i < v1Parts.length ? Integer.parseInt(v1Parts[i]) : 0;
-            int v2Part = i < v2Parts.length ? Integer.parseInt(v2Parts[i]) : 0;
-            
-            if (v1Part != v2Part) {
-                return Integer.compare(v1Part, v2Part);
-            }
-        }
-        
-        return 0;
-    }
-
     private ResponseEntity<Map<String, Object>> bad(String message) {
         Map<String, Object> err = new HashMap<>();
         err.put("error", message);
@@ -1,22 +1,33 @@
 package com.example.monitoring.controller;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.example.monitoring.model.Entities.Api;
+import com.example.monitoring.repo.ProjectRepository;
+import com.example.monitoring.repo.ProjectRepository.ProbeTarget;
+import com.example.monitoring.service.MonitoringService;
+import com.example.monitoring.service.ProbeHttpClient;
+import com.example.monitoring.service.ProbePlanner;
+import com.example.monitoring.service.ProbeSnapshotStore;
+import com.example.monitoring.service.ProbeSnapshotStore.ProbeSnapshot;
+import com.example.monitoring.service.ServiceInfo;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
+import reactor.core.publisher.Flux;
 
-import java.net.URI;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/proxy")
@@ -28,15 +39,39 @@ public class ProxyController {
         public String url;
     }
 
-    private final RestTemplate rest;
+    /** Registered APIs by id; maxAgeMs bounds how old a cached result may be */
+    public static class BatchCheckRequest {
+        public List<Long> apiIds;
+        public List<String> urls; // not supported, only present to reject it explicitly
+        public Long maxAgeMs;
+    }
+
+    private final ProbeHttpClient http;
+    private final MonitoringService monitoring;
+    private final ProbeSnapshotStore snapshots;
+    private final ProjectRepository repo;
+    private final ProbePlanner planner;
+    private final Duration defaultMaxAge;
+    private final int batchMaxInFlight;
+    private final Duration batchTimeout;
     private final ObjectMapper mapper = new ObjectMapper();
 
-    public ProxyController() {
-        // Simple timeouts so checks don't hang
-        var f = new SimpleClientHttpRequestFactory();
-        f.setConnectTimeout(5000);
-        f.setReadTimeout(5000);
-        this.rest = new RestTemplate(f);
+    private static final Duration CHECK_TIMEOUT = Duration.ofSeconds(5);
+    static final int MAX_BATCH_SIZE = 5000;
+
+    public ProxyController(ProbeHttpClient http, MonitoringService monitoring, ProbeSnapshotStore snapshots,
+                           ProjectRepository repo, ProbePlanner planner,
+                           @Value("${monitoring.proxy.batch.max-age-ms:60000}") long defaultMaxAgeMs,
+                           @Value("${monitoring.proxy.batch.max-in-flight:32}") int batchMaxInFlight,
+                           @Value("${monitoring.proxy.batch.timeout-ms:20000}") long batchTimeoutMs) {
+        this.http = http;
+        this.monitoring = monitoring;
+        this.snapshots = snapshots;
+        this.repo = repo;
+        this.planner = planner;
+        this.defaultMaxAge = Duration.ofMillis(Math.max(0, defaultMaxAgeMs));
+        this.batchMaxInFlight = Math.max(1, batchMaxInFlight);
+        this.batchTimeout = Duration.ofMillis(Math.max(1, batchTimeoutMs));
     }
 
     @PostMapping("/check")
@@ -45,34 +80,30 @@ public class ProxyController {
             return bad("Missing required property 'url'. Send: {\"url\":\"https://service/health\"}");
         }
         try {
-            var start = Instant.now();
-            var resp = rest.getForEntity(URI.create(req.url), String.class);
-            var elapsed = Duration.between(start, Instant.now()).toMillis();
-
-            String version = null;
-            String service = null;
-
-            if (resp.getBody() != null && !resp.getBody().isBlank()) {
-                try {
-                    JsonNode node = mapper.readTree(resp.getBody());
-                    version = node.path("version").isTextual() ? node.get("version").asText() : null;
-                    service = node.path("service").isTextual() ? node.get("service").asText() : null;
-                } catch (Exception ignored) {
-                    // Body wasn't JSON – treat as plain health response
-                }
+            var resp = http.get(req.url, CHECK_TIMEOUT).block();
+            var elapsed = resp.elapsedMs();
+
+            ServiceInfo info = ServiceInfo.parse(mapper, resp.body());
+            boolean online = resp.httpStatus() >= 200 && resp.httpStatus() < 400;
+            if (online && info.version() == null) {
+                // Plain health endpoint: metadata from the endpoint learned for this host
+                ServiceInfo meta = monitoring.fetchServiceInfoWithFallbackAsync(req.url).block(CHECK_TIMEOUT);
+                if (meta != null && !meta.isEmpty()) info = meta;
             }
 
             Map<String, Object> out = new HashMap<>();
-            out.put("status", resp.getStatusCode().value() >= 200 && resp.getStatusCode().value() < 400 ? "online" : "offline");
-            out.put("httpStatus", resp.getStatusCode().value());
+            out.put("status", online ? "online" : "offline");
+            out.put("httpStatus", resp.httpStatus());
             out.put("responseTime", (int) Math.min(elapsed, Integer.MAX_VALUE));
-            out.put("version", version);
-            out.put("service", service);
+            out.put("version", info.version());
+            out.put("service", info.service());
             out.put("url", req.url);
             out.put("apiId", req.apiId);
 
             return ResponseEntity.ok(out);
-        } catch (RestClientException ex) {
+        } catch (IllegalArgumentException badUrl) {
+            return bad("Invalid URL: " + req.url);
+        } catch (RuntimeException ex) {
             Map<String, Object> out = new HashMap<>();
             out.put("status", "offline");
             out.put("httpStatus", 0);
@@ -82,11 +113,141 @@ public class ProxyController {
             out.put("url", req.url);
             out.put("error", ex.getClass().getSimpleName() + ": " + ex.getMessage());
             return ResponseEntity.ok(out); // 200 with offline details so UI doesn't explode
-        } catch (IllegalArgumentException badUrl) {
-            return bad("Invalid URL: " + req.url);
         }
     }
 
+    /**
+     * Status and version of many APIs in one request. Registered APIs are answered from the
+     * background probe snapshots; only those older than {@code maxAgeMs} (default
+     * {@code monitoring.proxy.batch.max-age-ms}) are probed again, at most
+     * {@code monitoring.proxy.batch.max-in-flight} at a time, and recorded like any other probe.
+     * APIs whose circuit is open keep their last result. Only registered APIs are accepted, so
+     * the endpoint cannot be used to fan out to arbitrary URLs.
+     * <p>
+     * Probes still running after {@code monitoring.proxy.batch.timeout-ms} are abandoned (the
+     * background cycle probes those APIs as usual): their APIs get the last snapshot with source
+     * {@code stale}, or are listed under {@code pending} if they have none.
+     * <p>
+     * Each result carries {@code source}: {@code cache}, {@code probe}, {@code circuit-open} or
+     * {@code stale}. Unknown ids are listed under {@code missing}.
+     */
+    @PostMapping("/batch-check")
+    public ResponseEntity<?> batchCheck(@RequestBody BatchCheckRequest req) {
+        if (req.urls != null && !req.urls.isEmpty()) {
+            return bad("Only registered APIs can be batch-checked; send {\"apiIds\":[...]}");
+        }
+        Set<Long> ids = new LinkedHashSet<>(req.apiIds != null ? req.apiIds : List.of());
+        if (ids.isEmpty()) {
+            return bad("Send {\"apiIds\":[...]}");
+        }
+        if (ids.size() > MAX_BATCH_SIZE) {
+            return bad("At most " + MAX_BATCH_SIZE + " APIs per request");
+        }
+        Duration maxAge = req.maxAgeMs != null ? Duration.ofMillis(Math.max(0, req.maxAgeMs)) : defaultMaxAge;
+        Instant now = Instant.now();
+
+        Map<Long, Map<String, Object>> byId = new LinkedHashMap<>();
+        List<Api> stale = new ArrayList<>();
+        List<Long> missing = new ArrayList<>();
+        Map<Long, Api> apis = new HashMap<>();
+        for (Api a : repo.findApisByIds(ids)) {
+            apis.put(a.id(), a);
+        }
+        for (Long id : ids) {
+            Api api = apis.get(id);
+            if (api == null) {
+                missing.add(id);
+                continue;
+            }
+            ProbeSnapshot snapshot = snapshots.get(id);
+            if (snapshot != null && planner.isOpen(id)) {
+                byId.put(id, batchResult(id, api.url(), snapshot, "circuit-open", now));
+            } else if (snapshot != null && snapshot.ageMs(now) <= maxAge.toMillis()) {
+                byId.put(id, batchResult(id, api.url(), snapshot, "cache", now));
+            } else {
+                byId.put(id, null); // keeps the requested order
+                stale.add(api);
+            }
+        }
+
+        Flux<Map<String, Object>> probedApis = Flux.fromIterable(stale)
+                .flatMap(api -> monitoring.checkAndUpdateAsync(ProbeTarget.of(api))
+                        .onErrorReturn(new MonitoringService.CheckResult("offline", 0))
+                        .map(result -> batchResult(api.id(), api.url(), result)), batchMaxInFlight);
+        try {
+            probedApis.doOnNext(r -> {
+                        synchronized (byId) {
+                            byId.put((Long) r.get("apiId"), r);
+                        }
+                    })
+                    .then()
+                    .block(batchTimeout);
+        } catch (IllegalStateException timedOut) {
+            System.err.println(String.format(
+                    "Batch check timed out after %d ms - returning partial results for %d probed APIs",
+                    batchTimeout.toMillis(), stale.size()
+            ));
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        List<Long> pending = new ArrayList<>();
+        Instant end = Instant.now();
+        synchronized (byId) {
+            byId.forEach((id, r) -> {
+                ProbeSnapshot snapshot = r == null ? snapshots.get(id) : null;
+                if (r != null) results.add(r);
+                else if (snapshot != null) results.add(batchResult(id, apis.get(id).url(), snapshot, "stale", end));
+                else pending.add(id);
+            });
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("results", results);
+        out.put("missing", missing);
+        if (!pending.isEmpty()) {
+            out.put("pending", pending);
+        }
+        out.put("probed", stale.size());
+        out.put("timestamp", Instant.now());
+        return ResponseEntity.ok(out);
+    }
+
+    private static Map<String, Object> batchResult(Long apiId, String url, ProbeSnapshot s, String source, Instant now) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("apiId", apiId);
+        out.put("url", url);
+        out.put("status", s.status());
+        out.put("responseTime", s.responseTimeMs());
+        out.put("version", s.version());
+        out.put("service", s.service());
+        out.put("checkedAt", s.checkedAt());
+        out.put("ageMs", s.ageMs(now));
+        out.put("source", source);
+        return out;
+    }
+
+    private static Map<String, Object> batchResult(Long apiId, String url, MonitoringService.CheckResult r) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("apiId", apiId);
+        out.put("url", url);
+        out.put("status", r.status());
+        out.put("responseTime", r.responseTimeMs());
+        out.put("version", r.version());
+        out.put("service", r.service());
+        out.put("checkedAt", Instant.now());
+        out.put("ageMs", 0);
+        out.put("source", "probe");
+        return out;
+    }
+
+    /**
+     * Connection pool usage of the shared probe client (active, idle, pending acquires per host).
+     */
+    @GetMapping("/pool-stats")
+    public ResponseEntity<?> poolStats() {
+        return ResponseEntity.ok(http.poolStats());
+    }
+
+
     private ResponseEntity<Map<String, Object>> bad(String message) {
         Map<String, Object> err = new HashMap<>();
         err.put("error", message);
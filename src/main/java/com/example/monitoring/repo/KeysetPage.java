@@ -0,0 +1,86 @@
+package com.example.monitoring.repo;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of a listing sorted by (timestamp, id) descending, read with a keyset condition
+ * instead of OFFSET so the cost of a page depends on its size, not on its position.
+ * Rows are maps holding only the requested fields.
+ *
+ * @param nextCursor token for the following page, null on the last page
+ */
+public record KeysetPage(List<Map<String, Object>> items, String nextCursor) {
+
+    /**
+     * Parse a {@code fields=a,b,c} parameter against the fields a listing exposes
+     * (field name → column). Null or blank selects every field.
+     *
+     * @throws IllegalArgumentException on an unknown field
+     */
+    public static List<String> fields(Map<String, String> columns, String fieldsParam) {
+        if (fieldsParam == null || fieldsParam.isBlank()) return List.copyOf(columns.keySet());
+        List<String> out = new ArrayList<>();
+        for (String f : fieldsParam.split(",")) {
+            String field = f.trim();
+            if (field.isEmpty() || out.contains(field)) continue;
+            if (!columns.containsKey(field)) {
+                throw new IllegalArgumentException("Unknown field '" + field + "' (expected any of " + columns.keySet() + ")");
+            }
+            out.add(field);
+        }
+        return out;
+    }
+
+    /**
+     * @param columns     exposed field name → column; only constants, never request input
+     * @param fields      result of {@link #fields}
+     * @param filter      extra WHERE condition with {@code ?} placeholders, or null
+     */
+    public static KeysetPage query(JdbcTemplate jdbc, String table, String timeColumn, Map<String, String> columns,
+                                   List<String> fields, String filter, List<Object> filterArgs, Cursor after, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT id, ").append(timeColumn);
+        for (String field : fields) {
+            String column = columns.get(field);
+            if (!column.equals("id") && !column.equals(timeColumn)) sql.append(", ").append(column);
+        }
+        sql.append(" FROM ").append(table);
+
+        List<Object> args = new ArrayList<>(filterArgs);
+        List<String> conditions = new ArrayList<>();
+        if (filter != null) conditions.add(filter);
+        if (after != null) {
+            conditions.add("(" + timeColumn + " < ? OR (" + timeColumn + " = ? AND id < ?))");
+            Timestamp at = Timestamp.from(after.at());
+            args.addAll(Arrays.asList(at, at, after.id()));
+        }
+        if (!conditions.isEmpty()) sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        sql.append(" ORDER BY ").append(timeColumn).append(" DESC, id DESC LIMIT ?");
+        args.add(limit + 1); // one extra row tells whether there is a next page
+
+        List<Map<String, Object>> items = new ArrayList<>(limit);
+        Cursor[] last = new Cursor[1];
+        boolean[] more = new boolean[1];
+        jdbc.query(sql.toString(), rs -> {
+            if (items.size() == limit) {
+                more[0] = true;
+                return;
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : fields) {
+                row.put(field, RowStreamer.value(rs, columns.get(field)));
+            }
+            items.add(row);
+            last[0] = new Cursor(rs.getTimestamp(timeColumn).toInstant(), rs.getLong("id"));
+        }, args.toArray());
+
+        return new KeysetPage(items, more[0] ? last[0].encode() : null);
+    }
+}
@@ -3,22 +3,39 @@ package com.example.monitoring.repo;
 import com.example.monitoring.model.Entities.Project;
 import com.example.monitoring.model.Entities.Api;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 @Repository
 public class ProjectRepository {
 
     private final JdbcTemplate jdbc;
+    private final RowStreamer rows;
+    private final RepositoryMetrics metrics;
 
-    public ProjectRepository(JdbcTemplate jdbc) {
+    public ProjectRepository(JdbcTemplate jdbc, RowStreamer rows, RepositoryMetrics metrics) {
         this.jdbc = jdbc;
+        this.rows = rows;
+        this.metrics = metrics;
+    }
+
+    private <T> T timed(String method, Supplier<T> call) {
+        return metrics.record("ProjectRepository", method, call);
     }
 
     private static class ProjectRow implements RowMapper<Project> {
@@ -51,64 +68,170 @@ public class ProjectRepository {
     }
 
     public List<Project> findAllProjects() {
-        return jdbc.query("SELECT * FROM projects ORDER BY created_at DESC", new ProjectRow());
+        return timed("findAllProjects", () ->
+                jdbc.query("SELECT * FROM projects ORDER BY created_at DESC", new ProjectRow()));
     }
 
     public List<Api> findApisByProject(Long projectId) {
-        return jdbc.query("SELECT * FROM apis WHERE project_id=? ORDER BY created_at DESC", new ApiRow(), projectId);
+        return timed("findApisByProject", () ->
+                jdbc.query("SELECT * FROM apis WHERE project_id=? ORDER BY created_at DESC", new ApiRow(), projectId));
     }
 
     public List<Api> findAllApis() {
-        return jdbc.query("SELECT * FROM apis ORDER BY created_at DESC", new ApiRow());
+        return timed("findAllApis", () ->
+                jdbc.query("SELECT * FROM apis ORDER BY created_at DESC", new ApiRow()));
+    }
+
+    /** Fields of {@link Api} that paged listings can project, with their columns */
+    public static final Map<String, String> API_FIELDS;
+    static {
+        Map<String, String> f = new LinkedHashMap<>();
+        f.put("id", "id");
+        f.put("projectId", "project_id");
+        f.put("url", "url");
+        f.put("environment", "environment");
+        f.put("region", "region");
+        f.put("status", "status");
+        f.put("responseTime", "response_time");
+        f.put("lastChecked", "last_checked");
+        f.put("createdAt", "created_at");
+        API_FIELDS = Collections.unmodifiableMap(f);
+    }
+
+    /**
+     * Page of APIs, newest first, optionally of one project only.
+     *
+     * @param fields subset of {@link #API_FIELDS}, see {@link KeysetPage#fields}
+     */
+    public KeysetPage findApisPage(Long projectId, Cursor after, int limit, List<String> fields) {
+        return timed("findApisPage", () -> projectId == null
+                ? KeysetPage.query(jdbc, "apis", "created_at", API_FIELDS, fields, null, List.of(), after, limit)
+                : KeysetPage.query(jdbc, "apis", "created_at", API_FIELDS, fields,
+                        "project_id = ?", List.of(projectId), after, limit));
+    }
+
+    /**
+     * Every project joined with its APIs, one row per API (one row with null API columns for
+     * an empty project), projects newest first and each project's rows contiguous. Project
+     * columns are aliased p_id, p_name, p_created_at; API columns keep their names.
+     */
+    public void streamProjectsWithApis(RowCallbackHandler handler) {
+        rows.query("""
+            SELECT p.id AS p_id, p.name AS p_name, p.created_at AS p_created_at, a.*
+            FROM projects p LEFT JOIN apis a ON a.project_id = p.id
+            ORDER BY p.created_at DESC, p.id DESC, a.created_at DESC, a.id DESC
+            """, handler);
+    }
+
+    public void streamApis(RowCallbackHandler handler) {
+        rows.query("SELECT * FROM apis ORDER BY created_at DESC, id DESC", handler);
+    }
+
+    public List<Api> findApisByIds(Collection<Long> apiIds) {
+        if (apiIds.isEmpty()) return List.of();
+        String in = String.join(",", Collections.nCopies(apiIds.size(), "?"));
+        return timed("findApisByIds", () ->
+                jdbc.query("SELECT * FROM apis WHERE id IN (" + in + ") ORDER BY created_at DESC",
+                        new ApiRow(), apiIds.toArray()));
     }
 
     public Api getApiById(Long apiId) {
-        try {
-            return jdbc.queryForObject("SELECT * FROM apis WHERE id = ?", new ApiRow(), apiId);
-        } catch (org.springframework.dao.EmptyResultDataAccessException e) {
-            return null;
-        }
+        return timed("getApiById", () -> {
+            try {
+                return jdbc.queryForObject("SELECT * FROM apis WHERE id = ?", new ApiRow(), apiId);
+            } catch (org.springframework.dao.EmptyResultDataAccessException e) {
+                return null;
+            }
+        });
     }
 
     public long createProject(String name) {
         try {
-            Long id = jdbc.queryForObject(
-                    "INSERT INTO projects(name) VALUES (?) RETURNING id",
-                    Long.class, name
-            );
-            return id != null ? id : 0L;
+            return timed("createProject", () -> insertReturningId(
+                    "INSERT INTO projects(name) VALUES (?)", name));
         } catch (Exception e) {
             throw new RuntimeException("Failed to create project: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Generated id of a single-row insert through the driver's generated-keys support (the
+     * PostgreSQL driver appends RETURNING itself), so it works on H2 as well.
+     */
+    private long insertReturningId(String sql, Object... args) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbc.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, new String[]{"id"});
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i + 1, args[i]);
+            }
+            return ps;
+        }, keys);
+        Number id = keys.getKey();
+        return id != null ? id.longValue() : 0L;
+    }
+
     public int deleteProject(Long id) {
-        return jdbc.update("DELETE FROM projects WHERE id=?", id);
+        return timed("deleteProject", () -> jdbc.update("DELETE FROM projects WHERE id=?", id));
     }
 
     public long addApi(Long projectId, String url, String environment, String region) {
         try {
-            Long id = jdbc.queryForObject(
-                    "INSERT INTO apis(project_id,url,environment,region) VALUES (?,?,?,?) RETURNING id",
-                    Long.class, projectId, url, environment, region
-            );
-            return id != null ? id : 0L;
+            return timed("addApi", () -> insertReturningId(
+                    "INSERT INTO apis(project_id,url,environment,region) VALUES (?,?,?,?)",
+                    projectId, url, environment, region));
         } catch (Exception e) {
             throw new RuntimeException("Failed to add API: " + e.getMessage(), e);
         }
     }
 
     public int updateApi(Long apiId, String url, String environment, String region) {
-        return jdbc.update("UPDATE apis SET url=?, environment=?, region=? WHERE id=?",
-                url, environment, region, apiId);
+        return timed("updateApi", () -> jdbc.update("UPDATE apis SET url=?, environment=?, region=? WHERE id=?",
+                url, environment, region, apiId));
     }
 
     public int deleteApi(Long apiId) {
-        return jdbc.update("DELETE FROM apis WHERE id=?", apiId);
+        return timed("deleteApi", () -> jdbc.update("DELETE FROM apis WHERE id=?", apiId));
+    }
+
+    /** What the probe scheduler needs of an API; null interval/timeout means the defaults apply */
+    /** What a probe needs to record its result, so persisting it does not read the API back */
+    public record ProbeTarget(Long id, Long projectId, String url, String environment, String region,
+                              Integer intervalMs, Integer timeoutMs) {
+
+        /** Target for an API without probe overrides */
+        public static ProbeTarget of(Api api) {
+            return new ProbeTarget(api.id(), api.projectId(), api.url(), api.environment(), api.region(), null, null);
+        }
+    }
+
+    public List<ProbeTarget> findProbeTargets() {
+        return timed("findProbeTargets", () -> jdbc.query(
+                "SELECT id, project_id, url, environment, region, probe_interval_ms, probe_timeout_ms FROM apis",
+                (rs, i) -> new ProbeTarget(rs.getLong("id"), rs.getLong("project_id"), rs.getString("url"),
+                        rs.getString("environment"), rs.getString("region"),
+                        (Integer) rs.getObject("probe_interval_ms"), (Integer) rs.getObject("probe_timeout_ms"))));
+    }
+
+    public int updateProbeSettings(Long apiId, Integer intervalMs, Integer timeoutMs) {
+        return timed("updateProbeSettings", () -> jdbc.update(
+                "UPDATE apis SET probe_interval_ms=?, probe_timeout_ms=? WHERE id=?", intervalMs, timeoutMs, apiId));
     }
 
-    public void updateApiStatus(Long apiId, String status, Integer responseTime, Instant lastChecked) {
-        jdbc.update("UPDATE apis SET status=?, response_time=?, last_checked=? WHERE id=?",
-                status, responseTime, Timestamp.from(lastChecked), apiId);
+    public record ApiStatusUpdate(Long apiId, String status, Integer responseTime, Instant lastChecked) {}
+
+    /**
+     * Write many probe results in one JDBC batch.
+     */
+    public void updateApiStatuses(List<ApiStatusUpdate> updates) {
+        metrics.record("ProjectRepository", "updateApiStatuses", () -> {
+            jdbc.batchUpdate("UPDATE apis SET status=?, response_time=?, last_checked=? WHERE id=?",
+                    updates, updates.size(), (ps, u) -> {
+                        ps.setString(1, u.status());
+                        ps.setObject(2, u.responseTime());
+                        ps.setTimestamp(3, Timestamp.from(u.lastChecked()));
+                        ps.setLong(4, u.apiId());
+                    });
+        });
     }
 }
@@ -0,0 +1,41 @@
+package com.example.monitoring.repo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Duration of every JDBC-backed repository call, as the {@code repository.calls} timer tagged
+ * with the repository and method name. Streamed reads are not timed: they are paced by the
+ * client reading the response.
+ */
+@Component
+public class RepositoryMetrics {
+
+    private final MeterRegistry meters;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public RepositoryMetrics(MeterRegistry meters) {
+        this.meters = meters;
+    }
+
+    public <T> T record(String repository, String method, Supplier<T> call) {
+        return timer(repository, method).record(call);
+    }
+
+    public void record(String repository, String method, Runnable call) {
+        timer(repository, method).record(call);
+    }
+
+    private Timer timer(String repository, String method) {
+        return timers.computeIfAbsent(repository + "." + method, key -> Timer.builder("repository.calls")
+                .description("JDBC repository call duration")
+                .tag("repository", repository)
+                .tag("method", method)
+                .register(meters));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.monitoring.repo;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Row-by-row reads for responses that are written while the query runs. Queries use a fetch
+ * size and run inside a read-only transaction: PostgreSQL only uses a server-side cursor
+ * (instead of loading the whole result) when auto-commit is off, and several queries in one
+ * {@link #inReadOnlyTransaction} see the same snapshot.
+ */
+@Component
+public class RowStreamer {
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate readOnly;
+
+    public RowStreamer(DataSource dataSource, PlatformTransactionManager transactions,
+                       @Value("${monitoring.stream.fetch-size:500}") int fetchSize) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.jdbc.setFetchSize(fetchSize);
+        this.readOnly = new TransactionTemplate(transactions);
+        this.readOnly.setReadOnly(true);
+        this.readOnly.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    public void inReadOnlyTransaction(Runnable work) {
+        readOnly.executeWithoutResult(status -> work.run());
+    }
+
+    /**
+     * Call {@code handler} once per row; nothing is collected. Joins the surrounding
+     * {@link #inReadOnlyTransaction} if there is one, otherwise opens its own.
+     */
+    public void query(String sql, RowCallbackHandler handler, Object... args) {
+        inReadOnlyTransaction(() -> jdbc.query(sql, handler, args));
+    }
+
+    /**
+     * Column value as exposed in JSON: timestamps become {@link java.time.Instant}s.
+     */
+    public static Object value(ResultSet rs, String column) throws SQLException {
+        Object v = rs.getObject(column);
+        return v instanceof Timestamp ts ? ts.toInstant() : v;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.monitoring.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Data version counter for the dashboard payload. Every create/update/delete of a project or
+ * API, and every material probe change (see {@link StatusEventBus}), bumps the version and
+ * stamps the entity with it. The version backs the ETag of GET /api/data/projects and its
+ * {@code since=<version>} delta mode.
+ */
+@Component
+public class ChangeTracker {
+
+    // Starts at boot time so versions handed out before a restart are never reused
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+    private volatile long floor = version.get();
+
+    private final Map<Long, Long> apis = new ConcurrentHashMap<>();
+    private final Map<Long, Long> projects = new ConcurrentHashMap<>();
+    private final Map<Long, Long> deletedApis = new ConcurrentHashMap<>();
+    private final Map<Long, Long> deletedProjects = new ConcurrentHashMap<>();
+    private final int maxTombstones;
+
+    public ChangeTracker(@Value("${monitoring.changes.max-tombstones:10000}") int maxTombstones) {
+        this.maxTombstones = Math.max(1, maxTombstones);
+    }
+
+    public long current() {
+        return version.get();
+    }
+
+    public void apiChanged(Long apiId) {
+        long v = version.incrementAndGet();
+        deletedApis.remove(apiId);
+        apis.put(apiId, v);
+    }
+
+    public void apiDeleted(Long apiId) {
+        long v = version.incrementAndGet();
+        apis.remove(apiId);
+        deletedApis.put(apiId, v);
+        pruneTombstones(deletedApis);
+    }
+
+    public void projectChanged(Long projectId) {
+        long v = version.incrementAndGet();
+        deletedProjects.remove(projectId);
+        projects.put(projectId, v);
+    }
+
+    public void projectDeleted(Long projectId) {
+        long v = version.incrementAndGet();
+        projects.remove(projectId);
+        deletedProjects.put(projectId, v);
+        pruneTombstones(deletedProjects);
+    }
+
+    /**
+     * Whether a delta since {@code since} can be answered; older versions (before this boot, or
+     * before pruned tombstones) need the full payload.
+     */
+    public boolean canDiff(long since) {
+        return since >= floor && since <= version.get();
+    }
+
+    public List<Long> apisChangedSince(long since) {
+        return changedSince(apis, since);
+    }
+
+    public List<Long> apisDeletedSince(long since) {
+        return changedSince(deletedApis, since);
+    }
+
+    public List<Long> projectsChangedSince(long since) {
+        return changedSince(projects, since);
+    }
+
+    public List<Long> projectsDeletedSince(long since) {
+        return changedSince(deletedProjects, since);
+    }
+
+    private static List<Long> changedSince(Map<Long, Long> stamps, long since) {
+        List<Long> ids = new ArrayList<>();
+        stamps.forEach((id, v) -> {
+            if (v > since) ids.add(id);
+        });
+        return ids;
+    }
+
+    private void pruneTombstones(Map<Long, Long> tombstones) {
+        if (tombstones.size() <= maxTombstones) return;
+        // Drop the oldest half; deltas from before the newest dropped tombstone are no longer possible
+        List<Long> stamps = new ArrayList<>(tombstones.values());
+        stamps.sort(null);
+        long cutoff = stamps.get(stamps.size() / 2);
+        tombstones.values().removeIf(v -> v <= cutoff);
+        floor = Math.max(floor, cutoff);
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.monitoring.service;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-side compliance matrix (service × dev/uat/oat/prod → version, violations).
+ * Rows are immutable and replaced one service at a time whenever
+ * {@link VersionHistoryService#updateApiVersion} sees a version change, so reading the
+ * matrix never touches the database or the monitored services.
+ * <p>
+ * A row is one service within one project, keyed {@code <service>-<projectId>} as the
+ * dashboard groups them. Every API of the row is kept under its normalized environment (e.g.
+ * "prod" and "production" both land in prod), and the rules are checked across all of them.
+ */
+@Component
+public class ComplianceMatrix {
+
+    public record EnvVersion(Long apiId, String version, String url, Instant updatedAt) {}
+
+    public record ServiceRow(String service, Long projectId, Map<String, List<EnvVersion>> environments,
+                             List<String> violations, boolean compliant, Instant updatedAt) {}
+
+    /** Where an API currently sits in the matrix, so a rename or move clears the old cell */
+    private record Cell(String row, String service, Long projectId, String environment) {}
+
+    private final JdbcTemplate jdbc;
+    private final Map<String, ServiceRow> rows = new ConcurrentHashMap<>();
+    private final Map<Long, Cell> cellsByApi = new ConcurrentHashMap<>();
+    private final AtomicLong revision = new AtomicLong();
+
+    public ComplianceMatrix(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Seed the matrix from the most recent history entry of every API.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        String sql = """
+            SELECT h.api_id, h.project_id, h.service_name, h.environment, h.version, h.url, h.detected_at
+            FROM api_version_history h
+            WHERE h.detected_at = (SELECT MAX(detected_at) FROM api_version_history WHERE api_id = h.api_id)
+            """;
+        try {
+            jdbc.query(sql, rs -> {
+                update(rs.getLong("api_id"), rs.getObject("project_id", Long.class),
+                        rs.getString("service_name"), rs.getString("environment"),
+                        rs.getString("version"), rs.getString("url"), rs.getTimestamp("detected_at").toInstant());
+            });
+        } catch (Exception e) {
+            System.err.println("Compliance matrix not preloaded: " + e.getMessage());
+        }
+    }
+
+    public boolean contains(Long apiId) {
+        return cellsByApi.containsKey(apiId);
+    }
+
+    /** Row key of a service within a project, as the dashboard groups services */
+    public static String rowKey(String service, Long projectId) {
+        return service + "-" + projectId;
+    }
+
+    /**
+     * Record the current version of one API and recompute only its service row.
+     */
+    public void update(Long apiId, Long projectId, String service, String environment, String version, String url,
+                       Instant at) {
+        Cell cell = new Cell(rowKey(service, projectId), service, projectId,
+                ComplianceRules.normalizeEnvironment(environment));
+        Cell previous = cellsByApi.put(apiId, cell);
+        if (previous != null && !previous.equals(cell)) {
+            removeFromRow(apiId, previous);
+        }
+        rows.compute(cell.row(), (key, row) -> {
+            Map<String, List<EnvVersion>> envs = row != null ? new LinkedHashMap<>(row.environments()) : new LinkedHashMap<>();
+            List<EnvVersion> apis = new ArrayList<>(envs.getOrDefault(cell.environment(), List.of()));
+            apis.removeIf(v -> v.apiId().equals(apiId));
+            apis.add(new EnvVersion(apiId, version, url, at));
+            apis.sort(Comparator.comparing(EnvVersion::apiId));
+            envs.put(cell.environment(), List.copyOf(apis));
+            return buildRow(service, projectId, envs, at);
+        });
+        revision.incrementAndGet();
+    }
+
+    public void remove(Long apiId) {
+        Cell previous = cellsByApi.remove(apiId);
+        if (previous != null) {
+            removeFromRow(apiId, previous);
+            revision.incrementAndGet();
+        }
+    }
+
+    private void removeFromRow(Long apiId, Cell cell) {
+        rows.computeIfPresent(cell.row(), (key, row) -> {
+            List<EnvVersion> current = row.environments().get(cell.environment());
+            if (current == null || current.stream().noneMatch(v -> v.apiId().equals(apiId))) return row;
+            Map<String, List<EnvVersion>> envs = new LinkedHashMap<>(row.environments());
+            List<EnvVersion> rest = current.stream().filter(v -> !v.apiId().equals(apiId)).toList();
+            if (rest.isEmpty()) envs.remove(cell.environment());
+            else envs.put(cell.environment(), rest);
+            return envs.isEmpty() ? null : buildRow(row.service(), row.projectId(), envs, Instant.now());
+        });
+    }
+
+    private ServiceRow buildRow(String service, Long projectId, Map<String, List<EnvVersion>> envs, Instant at) {
+        Map<String, List<String>> versions = new LinkedHashMap<>();
+        envs.forEach((env, apis) -> versions.put(env, apis.stream().map(EnvVersion::version).toList()));
+
+        List<String> violations;
+        try {
+            violations = ComplianceRules.validateAll(versions);
+        } catch (RuntimeException unparseable) {
+            violations = List.of("WARNING: versions could not be compared (" + unparseable.getMessage() + ")");
+        }
+        return new ServiceRow(service, projectId, Collections.unmodifiableMap(envs), List.copyOf(violations),
+                violations.isEmpty(), at);
+    }
+
+    /** Rows of one service, one per project it appears in */
+    public Map<String, ServiceRow> rowsOf(String service) {
+        Map<String, ServiceRow> out = new TreeMap<>();
+        rows.forEach((key, row) -> {
+            if (row.service().equals(service)) out.put(key, row);
+        });
+        return out;
+    }
+
+    /** Read-only live view of all rows; each row is immutable */
+    public Map<String, ServiceRow> rows() {
+        return Collections.unmodifiableMap(rows);
+    }
+
+    /** Incremented on every change, lets clients tell whether the matrix moved */
+    public long revision() {
+        return revision.get();
+    }
+}
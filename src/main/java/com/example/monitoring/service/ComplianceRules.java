@@ -0,0 +1,91 @@
+package com.example.monitoring.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Version promotion rules shared by the live compliance check and the compliance matrix:
+ * PROD may not be ahead of OAT or UAT (critical), OAT may not be ahead of UAT (warning).
+ */
+public final class ComplianceRules {
+
+    private ComplianceRules() {}
+
+    /**
+     * @param versions version per normalized environment (dev/uat/oat/prod); missing or null entries are skipped
+     */
+    public static List<String> validate(Map<String, String> versions) {
+        String oatVersion = versions.get("oat");
+        return validate(versions.get("prod"), oatVersion, oatVersion, versions.get("uat"));
+    }
+
+    /**
+     * Same rules when an environment holds several APIs of the service: the highest version of
+     * the upper environment is checked against the lowest of the lower one, so every API that
+     * is ahead of a lower stage is caught.
+     *
+     * @param versions versions per normalized environment; null versions are skipped
+     */
+    public static List<String> validateAll(Map<String, ? extends Collection<String>> versions) {
+        return validate(highest(versions.get("prod")), lowest(versions.get("oat")),
+                highest(versions.get("oat")), lowest(versions.get("uat")));
+    }
+
+    private static List<String> validate(String prodVersion, String oatLowest, String oatHighest, String uatVersion) {
+        List<String> violations = new ArrayList<>();
+
+        // Version comparison logic
+        if (prodVersion != null && oatLowest != null && compareVersions(prodVersion, oatLowest) > 0) {
+            violations.add("CRITICAL: PROD version (" + prodVersion + ") is higher than OAT version (" + oatLowest + ")");
+        }
+
+        if (prodVersion != null && uatVersion != null && compareVersions(prodVersion, uatVersion) > 0) {
+            violations.add("CRITICAL: PROD version (" + prodVersion + ") is higher than UAT version (" + uatVersion + ")");
+        }
+
+        if (oatHighest != null && uatVersion != null && compareVersions(oatHighest, uatVersion) > 0) {
+            violations.add("WARNING: OAT version (" + oatHighest + ") is higher than UAT version (" + uatVersion + ")");
+        }
+
+        return violations;
+    }
+
+    private static String highest(Collection<String> versions) {
+        if (versions == null) return null;
+        String out = null;
+        for (String v : versions) {
+            if (v != null && (out == null || compareVersions(v, out) > 0)) out = v;
+        }
+        return out;
+    }
+
+    private static String lowest(Collection<String> versions) {
+        if (versions == null) return null;
+        String out = null;
+        for (String v : versions) {
+            if (v != null && (out == null || compareVersions(v, out) < 0)) out = v;
+        }
+        return out;
+    }
+
+    /** Null on either side compares as equal; see {@link SemanticVersion} for the ordering */
+    public static int compareVersions(String version1, String version2) {
+        if (version1 == null || version2 == null) return 0;
+        return SemanticVersion.of(version1).compareTo(SemanticVersion.of(version2));
+    }
+
+    /**
+     * Map free-form environment names ("PROD", "prod-eu", "UAT2") onto dev/uat/oat/prod.
+     */
+    public static String normalizeEnvironment(String env) {
+        if (env == null) return "dev";
+        String normalized = env.toLowerCase();
+        if (normalized.contains("prod") || normalized.startsWith("prd")) return "prod";
+        if (normalized.contains("oat")) return "oat";
+        if (normalized.contains("uat")) return "uat";
+        if (normalized.contains("dev")) return "dev";
+        return normalized;
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.monitoring.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-host concurrency limit for probes. At most {@code maxConcurrent} calls run against one
+ * host; up to {@code maxQueued} more wait for a slot without holding a thread, and anything
+ * beyond that fails at once with {@link BulkheadFullException}. A slow gateway then only
+ * backs up its own queue instead of every probe slot.
+ * <p>
+ * Each host gets {@code probe.host.active}, {@code probe.host.queued} and
+ * {@code probe.host.rejected} meters tagged with the host. A host with nothing running or
+ * queued for {@code idleTimeout} is dropped together with its meters, so hosts probed once do
+ * not stay in memory and in the scrape.
+ */
+class HostBulkheads {
+
+    /** Raised when a host already has {@code maxQueued} probes waiting */
+    public static class BulkheadFullException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BulkheadFullException(String host) {
+            super("Too many concurrent probes to " + host);
+        }
+    }
+
+    private final MeterRegistry meters;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long idleTimeoutNanos;
+    private final Map<String, Bulkhead> hosts = new ConcurrentHashMap<>();
+
+    HostBulkheads(MeterRegistry meters, int maxConcurrent, int maxQueued, Duration idleTimeout) {
+        this.meters = meters;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+    }
+
+    /** Run {@code call} once the host has a free slot; cancelling while queued gives up the place */
+    <T> Mono<T> run(String host, Mono<T> call) {
+        return Mono.defer(() -> {
+            // Touched inside compute, so evictIdle (which also computes on the key) never drops it now
+            Bulkhead bulkhead = hosts.compute(host, (k, b) -> {
+                Bulkhead used = b != null ? b : new Bulkhead(k);
+                used.lastUsedNanos = System.nanoTime();
+                return used;
+            });
+            return Mono.usingWhen(bulkhead.acquire(), permit -> call,
+                    permit -> permit.release(),
+                    (permit, error) -> permit.release(),
+                    permit -> permit.release());
+        });
+    }
+
+    /** Drop hosts with nothing running or queued that have not been used for {@code idleTimeout} */
+    void evictIdle() {
+        long now = System.nanoTime();
+        for (String host : List.copyOf(hosts.keySet())) {
+            hosts.computeIfPresent(host, (k, b) -> {
+                if (!b.idle(now)) return b;
+                b.removeMeters();
+                return null;
+            });
+        }
+    }
+
+    /** Active, queued and rejected probes per host */
+    Map<String, Object> stats() {
+        Map<String, Object> out = new TreeMap<>();
+        hosts.forEach((host, b) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("active", b.active.get());
+            row.put("queued", b.queued());
+            row.put("rejected", (long) b.rejected.count());
+            row.put("maxConcurrent", maxConcurrent);
+            out.put(host, row);
+        });
+        return out;
+    }
+
+    private final class Bulkhead {
+        private final String host;
+        private final AtomicInteger active = new AtomicInteger();
+        private final ArrayDeque<Permit> waiting = new ArrayDeque<>();
+        private final Gauge activeGauge;
+        private final Gauge queuedGauge;
+        private final Counter rejected;
+        private volatile long lastUsedNanos = System.nanoTime();
+
+        Bulkhead(String host) {
+            this.host = host;
+            this.activeGauge = Gauge.builder("probe.host.active", active, AtomicInteger::get)
+                    .description("Probes running against a host")
+                    .tag("host", host)
+                    .register(meters);
+            this.queuedGauge = Gauge.builder("probe.host.queued", this, Bulkhead::queued)
+                    .description("Probes waiting for a slot on a host")
+                    .tag("host", host)
+                    .register(meters);
+            this.rejected = Counter.builder("probe.host.rejected")
+                    .description("Probes rejected because the host's queue was full")
+                    .tag("host", host)
+                    .register(meters);
+        }
+
+        synchronized int queued() {
+            return waiting.size();
+        }
+
+        synchronized boolean idle(long now) {
+            return active.get() == 0 && waiting.isEmpty() && now - lastUsedNanos > idleTimeoutNanos;
+        }
+
+        void removeMeters() {
+            meters.remove(activeGauge);
+            meters.remove(queuedGauge);
+            meters.remove(rejected);
+        }
+
+        Mono<Permit> acquire() {
+            return Mono.create(sink -> {
+                Permit permit = new Permit(this, sink);
+                synchronized (this) {
+                    if (active.get() < maxConcurrent) {
+                        active.incrementAndGet();
+                        permit.granted.set(true);
+                    } else if (waiting.size() < maxQueued) {
+                        waiting.add(permit);
+                    } else {
+                        rejected.increment();
+                        sink.error(new BulkheadFullException(host));
+                        return;
+                    }
+                }
+                sink.onCancel(permit::cancel);
+                if (permit.granted.get()) sink.success(permit);
+            });
+        }
+
+        /** Hand the slot to the next waiter, or free it */
+        void release() {
+            Permit next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    active.decrementAndGet();
+                    return;
+                }
+                next.granted.set(true);
+            }
+            next.sink.success(next);
+        }
+
+        synchronized boolean dequeue(Permit permit) {
+            return waiting.remove(permit);
+        }
+    }
+
+    /** One slot, released exactly once whether the call completes, fails or is cancelled */
+    private static final class Permit {
+        private final Bulkhead bulkhead;
+        private final MonoSink<Permit> sink;
+        private final AtomicBoolean granted = new AtomicBoolean();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(Bulkhead bulkhead, MonoSink<Permit> sink) {
+            this.bulkhead = bulkhead;
+            this.sink = sink;
+        }
+
+        Mono<Void> release() {
+            return Mono.fromRunnable(this::releaseNow);
+        }
+
+        void cancel() {
+            if (!bulkhead.dequeue(this) && granted.get()) releaseNow();
+        }
+
+        private void releaseNow() {
+            if (released.compareAndSet(false, true)) bulkhead.release();
+        }
+    }
+}
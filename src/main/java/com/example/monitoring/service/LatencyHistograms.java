@@ -0,0 +1,194 @@
+package com.example.monitoring.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory latency histograms per API, updated on every probe. Buckets are log-linear
+ * (HDR-style: exact below 4 ms, then 4 sub-buckets per power of two, i.e. within ~19%) up to
+ * {@link #MAX_TRACKABLE_MS}; the exact maximum is tracked separately.
+ * <p>
+ * Each {@link Window} is a ring of time slices, so recording allocates nothing and memory per
+ * API is fixed (about 3.5 KB), whatever the probe rate. A window covers its nominal length
+ * plus the slice currently being filled.
+ */
+@Component
+public class LatencyHistograms {
+
+    public enum Window {
+        FIVE_MINUTES("5m", Duration.ofMinutes(1), 5),
+        ONE_HOUR("1h", Duration.ofMinutes(10), 6),
+        ONE_DAY("24h", Duration.ofHours(2), 12);
+
+        private final String label;
+        private final long sliceMs;
+        private final int slots;
+
+        Window(String label, Duration slice, int slices) {
+            this.label = label;
+            this.sliceMs = slice.toMillis();
+            this.slots = slices + 1;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        public static Window fromLabel(String label) {
+            for (Window w : values()) {
+                if (w.label.equalsIgnoreCase(label)) return w;
+            }
+            throw new IllegalArgumentException("Unknown window '" + label + "' (expected 5m, 1h or 24h)");
+        }
+    }
+
+    /** Successful probes give the latency figures; failed probes only count as errors */
+    public record Percentiles(long count, long errors, Integer p50, Integer p95, Integer p99, Integer max) {}
+
+    static final int BUCKETS = 64;
+    static final int MAX_TRACKABLE_MS = (1 << 17) - 1;
+
+    private final Map<Long, ApiHistogram> histograms = new ConcurrentHashMap<>();
+
+    public void record(Long apiId, boolean ok, int responseTimeMs, long atMillis) {
+        histograms.computeIfAbsent(apiId, id -> new ApiHistogram()).record(ok, responseTimeMs, atMillis);
+    }
+
+    public Percentiles percentiles(Long apiId, Window window, long nowMillis) {
+        Accumulator acc = new Accumulator();
+        ApiHistogram h = histograms.get(apiId);
+        if (h != null) h.addTo(acc, window, nowMillis);
+        return acc.percentiles();
+    }
+
+    /**
+     * Percentiles over all the given APIs together (a project, an environment, everything).
+     */
+    public Percentiles merged(Collection<Long> apiIds, Window window, long nowMillis) {
+        Accumulator acc = new Accumulator();
+        for (Long apiId : apiIds) {
+            ApiHistogram h = histograms.get(apiId);
+            if (h != null) h.addTo(acc, window, nowMillis);
+        }
+        return acc.percentiles();
+    }
+
+    public void remove(Long apiId) {
+        histograms.remove(apiId);
+    }
+
+    static int bucketOf(int ms) {
+        int v = Math.min(Math.max(ms, 0), MAX_TRACKABLE_MS);
+        if (v < 4) return v;
+        int octave = 31 - Integer.numberOfLeadingZeros(v); // >= 2
+        int sub = (v >> (octave - 2)) & 3;
+        return 4 + (octave - 2) * 4 + sub;
+    }
+
+    /** Highest value that falls into the bucket */
+    static int bucketUpperBound(int bucket) {
+        if (bucket < 4) return bucket;
+        int octave = (bucket - 4) / 4 + 2;
+        int sub = (bucket - 4) % 4;
+        return ((4 + sub + 1) << (octave - 2)) - 1;
+    }
+
+    /** All windows of one API; guarded by its own monitor, which is practically uncontended */
+    private static final class ApiHistogram {
+        private final Ring[] rings = new Ring[Window.values().length];
+
+        ApiHistogram() {
+            for (Window w : Window.values()) {
+                rings[w.ordinal()] = new Ring(w);
+            }
+        }
+
+        synchronized void record(boolean ok, int responseTimeMs, long atMillis) {
+            for (Ring ring : rings) {
+                ring.record(ok, responseTimeMs, atMillis);
+            }
+        }
+
+        synchronized void addTo(Accumulator acc, Window window, long nowMillis) {
+            rings[window.ordinal()].addTo(acc, nowMillis);
+        }
+    }
+
+    private static final class Ring {
+        private final Window window;
+        private final long[] sliceOf;
+        /** Saturating per-slice bucket counts, slot-major; a slice holds at most a few thousand samples */
+        private final char[] counts;
+        private final int[] errors;
+        private final int[] max;
+
+        Ring(Window window) {
+            this.window = window;
+            this.sliceOf = new long[window.slots];
+            this.counts = new char[window.slots * BUCKETS];
+            this.errors = new int[window.slots];
+            this.max = new int[window.slots];
+            Arrays.fill(sliceOf, Long.MIN_VALUE);
+        }
+
+        void record(boolean ok, int responseTimeMs, long atMillis) {
+            long slice = Math.floorDiv(atMillis, window.sliceMs);
+            int slot = (int) Math.floorMod(slice, (long) window.slots);
+            if (sliceOf[slot] != slice) {
+                if (sliceOf[slot] > slice) return; // older than anything the ring still holds
+                Arrays.fill(counts, slot * BUCKETS, (slot + 1) * BUCKETS, (char) 0);
+                errors[slot] = 0;
+                max[slot] = 0;
+                sliceOf[slot] = slice;
+            }
+            if (!ok) {
+                errors[slot]++;
+                return;
+            }
+            int i = slot * BUCKETS + bucketOf(responseTimeMs);
+            if (counts[i] != Character.MAX_VALUE) counts[i]++;
+            if (responseTimeMs > max[slot]) max[slot] = responseTimeMs;
+        }
+
+        void addTo(Accumulator acc, long nowMillis) {
+            long current = Math.floorDiv(nowMillis, window.sliceMs);
+            for (int slot = 0; slot < window.slots; slot++) {
+                if (sliceOf[slot] <= current - window.slots || sliceOf[slot] > current) continue;
+                int base = slot * BUCKETS;
+                for (int b = 0; b < BUCKETS; b++) {
+                    acc.counts[b] += counts[base + b];
+                }
+                acc.errors += errors[slot];
+                acc.max = Math.max(acc.max, max[slot]);
+            }
+        }
+    }
+
+    private static final class Accumulator {
+        final long[] counts = new long[BUCKETS];
+        long errors;
+        int max;
+
+        Percentiles percentiles() {
+            long total = 0;
+            for (long c : counts) total += c;
+            if (total == 0) return new Percentiles(0, errors, null, null, null, null);
+            return new Percentiles(total, errors, valueAt(0.50, total), valueAt(0.95, total), valueAt(0.99, total), max);
+        }
+
+        private int valueAt(double quantile, long total) {
+            long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += counts[b];
+                if (seen >= rank) return Math.min(bucketUpperBound(b), max);
+            }
+            return max;
+        }
+    }
+}
@@ -1,158 +1,346 @@
 package com.example.monitoring.service;
 
-import com.example.monitoring.repo.ProjectRepository;
-import com.example.monitoring.model.Entities.Api;
+import com.example.monitoring.repo.ProjectRepository.ProbeTarget;
+import com.example.monitoring.service.ProbeCoalescer.SharedProbeFailure;
+import com.example.monitoring.service.ProbeSnapshotStore.ProbeSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatusCode;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.net.URI;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class MonitoringService {
 
-    private final WebClient webClient;
-    private final ProjectRepository repo;
+    private final ProbeHttpClient http;
     private final VersionHistoryService versionHistory;
+    private final ProbeSnapshotStore snapshots;
+    private final StatusEventBus statusEvents;
+    private final ProbeWriteBuffer writeBuffer;
+    private final ProbeTimeSeries timeSeries;
+    private final LatencyHistograms latency;
+    private final ProbePlanner planner;
+    private final ObjectMapper mapper = new ObjectMapper();
 
-    public MonitoringService(ProjectRepository repo, VersionHistoryService versionHistory ) {
-        this.repo = repo;
+    /** Default probe timeout; apis.probe_timeout_ms overrides it per API */
+    static final Duration PROBE_TIMEOUT = Duration.ofSeconds(8);
+
+    private final int maxInFlight;
+    private final Duration callTimeout;
+    private final Duration batchTimeout;
+    private final Duration learnedEndpointTtl;
+    private final int learnedEndpointsMax;
+    private final Counter serviceInfoHits;
+    private final Counter serviceInfoMisses;
+    private final Counter serviceInfoStale;
+
+    public MonitoringService(VersionHistoryService versionHistory,
+                             ProbeSnapshotStore snapshots, StatusEventBus statusEvents,
+                             ProbeWriteBuffer writeBuffer, ProbeTimeSeries timeSeries, LatencyHistograms latency,
+                             ProbePlanner planner, ProbeHttpClient http, MeterRegistry meters,
+                             @Value("${monitoring.probe.max-in-flight:64}") int maxInFlight,
+                             @Value("${monitoring.probe.call-timeout-ms:11000}") long callTimeoutMs,
+                             @Value("${monitoring.probe.batch-timeout-ms:120000}") long batchTimeoutMs,
+                             @Value("${monitoring.probe.discovery.ttl-ms:3600000}") long learnedEndpointTtlMs,
+                             @Value("${monitoring.probe.discovery.max-entries:10000}") int learnedEndpointsMax) {
         this.versionHistory = versionHistory;
-        this.webClient = WebClient.builder().build();
+        this.snapshots = snapshots;
+        this.statusEvents = statusEvents;
+        this.writeBuffer = writeBuffer;
+        this.timeSeries = timeSeries;
+        this.latency = latency;
+        this.planner = planner;
+        this.http = http;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.callTimeout = Duration.ofMillis(callTimeoutMs);
+        this.batchTimeout = Duration.ofMillis(batchTimeoutMs);
+        this.learnedEndpointTtl = Duration.ofMillis(learnedEndpointTtlMs);
+        this.learnedEndpointsMax = Math.max(1, learnedEndpointsMax);
+        this.serviceInfoHits = serviceInfoCounter(meters, "hit");
+        this.serviceInfoMisses = serviceInfoCounter(meters, "miss");
+        this.serviceInfoStale = serviceInfoCounter(meters, "stale");
     }
 
-    public record CheckResult(String status, int responseTimeMs) {}
+    /**
+     * hit: the learned endpoint answered; miss: nothing learned (or expired), all fallbacks
+     * raced; stale: the learned endpoint stopped returning metadata, fallbacks raced again.
+     */
+    private static Counter serviceInfoCounter(MeterRegistry meters, String result) {
+        return Counter.builder("service.info.lookups")
+                .description("Service metadata lookups by learned-endpoint cache result")
+                .tag("result", result)
+                .register(meters);
+    }
 
-    public CheckResult checkAndUpdate(Long apiId, String targetUrl) {
-        Instant start = Instant.now();
-        String status;
+    /**
+     * Outcome of a single probe: reachability, latency and the version/service metadata
+     * parsed from the same response body. {@code observedAt} is when the upstream call answered
+     * or failed; null for a failure of this caller's own (timeout, cancelled batch).
+     */
+    public record CheckResult(String status, int responseTimeMs, String version, String service, Instant observedAt) {
 
-        try {
-            String responseStatus = webClient.get()
-                    .uri(URI.create(targetUrl))
-                    .retrieve()
-                    .onStatus(HttpStatusCode::isError, r -> Mono.empty())
-                    .toBodilessEntity()
-                    .timeout(Duration.ofSeconds(8))
-                    .map(e -> e.getStatusCode().is2xxSuccessful() ? "online" : "offline")
-                    .blockOptional()
-                    .orElse("offline");
-
-            status = responseStatus;
-        } catch (Exception e) {
-            status = "offline";
+        public CheckResult(String status, int responseTimeMs) {
+            this(status, responseTimeMs, null, null, null);
         }
 
-        int rt = (int) (Duration.between(start, Instant.now()).toMillis());
-        repo.updateApiStatus(apiId, status, rt, Instant.now());
-
-        // Fetch version info and update history
-        Map<String, String> meta = fetchServiceInfo(targetUrl);
-        if (!meta.isEmpty() && meta.containsKey("version")) {
-            String version = meta.get("version");
-            String serviceName = meta.getOrDefault("service", versionHistory.extractServiceFromUrl(targetUrl));
-
-            // Get API details for version history
-            Api api = repo.getApiById(apiId);
-            if (api != null) {
-                versionHistory.updateApiVersion(
-                        apiId, version, api.environment(), api.region(),
-                        status, rt, serviceName, targetUrl, api.projectId()
-                );
-            }
+        /** version/service as the metadata map exposed by the API payloads; empty if unknown */
+        public Map<String, String> meta() {
+            Map<String, String> out = new HashMap<>();
+            if (version != null) out.put("version", version);
+            if (service != null) out.put("service", service);
+            return out;
+        }
+    }
+
+    public CheckResult checkAndUpdate(ProbeTarget target) {
+        return checkAndUpdateAsync(target).block();
+    }
+
+    /**
+     * Non-blocking variant of {@link #checkAndUpdate}: the HTTP call runs on the WebClient
+     * event loop and only the JDBC persistence is moved to the bounded elastic scheduler.
+     */
+    public Mono<CheckResult> checkAndUpdateAsync(ProbeTarget target) {
+        return checkAndUpdateAsync(target, PROBE_TIMEOUT);
+    }
+
+    public Mono<CheckResult> checkAndUpdateAsync(ProbeTarget target, Duration timeout) {
+        return probe(target.url(), timeout)
+                .flatMap(result -> Mono.fromCallable(() -> persist(target, result))
+                        .subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    /**
+     * Single GET against the target: status and latency come from the response itself and
+     * version/service are read from its body, so usually no second request is needed for
+     * metadata. An online target whose body has no version (a plain health check) gets it from
+     * {@link #fetchServiceInfoWithFallbackAsync}, which remembers per host where it was found.
+     * Never fails; unreachable targets yield an "offline" result.
+     */
+    public Mono<CheckResult> probe(String targetUrl) {
+        return probe(targetUrl, PROBE_TIMEOUT);
+    }
+
+    public Mono<CheckResult> probe(String targetUrl, Duration timeout) {
+        return Mono.defer(() -> {
+            Instant start = Instant.now();
+            return http.get(targetUrl, timeout)
+                    .flatMap(resp -> {
+                        String status = HttpStatusCode.valueOf(resp.httpStatus()).is2xxSuccessful() ? "online" : "offline";
+                        ServiceInfo info = ServiceInfo.parse(mapper, resp.body());
+                        Mono<ServiceInfo> metadata = "online".equals(status) && info.version() == null
+                                ? fetchServiceInfoWithFallbackAsync(targetUrl)
+                                : Mono.just(info);
+                        return metadata.map(m -> new CheckResult(status, (int) resp.elapsedMs(),
+                                m.version(), m.service(), resp.receivedAt()));
+                    })
+                    .onErrorResume(e -> Mono.just(new CheckResult("offline",
+                            (int) Duration.between(start, Instant.now()).toMillis(), null, null,
+                            e instanceof SharedProbeFailure shared ? shared.failedAt() : null)));
+        });
+    }
+
+    /**
+     * Record a probe result for one API. Coalesced probes hand the same upstream response to
+     * several callers; only the first to persist it for this API records it, the others (and any
+     * result older than the API's snapshot) are returned without being recorded again.
+     */
+    private CheckResult persist(ProbeTarget target, CheckResult result) {
+        Long apiId = target.id();
+        String status = result.status();
+        int rt = result.responseTimeMs();
+        Instant checkedAt = result.observedAt() != null ? result.observedAt() : Instant.now();
+        ProbeSnapshot snapshot = new ProbeSnapshot(apiId, status, rt, result.version(), result.service(), checkedAt);
+        ProbeSnapshotStore.Update update = snapshots.putIfNewer(snapshot);
+        if (!update.applied()) return result;
+
+        writeBuffer.offer(apiId, status, rt, checkedAt);
+        timeSeries.record(apiId, status, rt, checkedAt);
+        latency.record(apiId, "online".equals(status), rt, checkedAt.toEpochMilli());
+        planner.onResult(apiId, "online".equals(status), result.version(), checkedAt);
+        statusEvents.onProbe(update.previous(), snapshot);
+        if (result.version() != null) {
+            String version = result.version();
+            String serviceName = result.service() != null ? result.service() : versionHistory.extractServiceFromUrl(target.url());
+            versionHistory.updateApiVersion(
+                    apiId, version, target.environment(), target.region(),
+                    status, rt, serviceName, target.url(), target.projectId()
+            );
         }
 
-        return new CheckResult(status, rt);
+        return result;
     }
 
     /**
      * Fetch lightweight metadata from an API that returns:
      * { "version": "1.0.0", "service": "api-name-invoice-job" }
-     * Returns an empty map on failure.
+     * Returns {@link ServiceInfo#NONE} on failure.
      */
-    public Map<String, String> fetchServiceInfo(String url) {
-        try {
-            Map<?, ?> m = webClient.get()
-                    .uri(URI.create(url))
-                    .accept(MediaType.APPLICATION_JSON)
-                    .retrieve()
-                    .onStatus(HttpStatusCode::isError, r -> Mono.empty())
-                    .bodyToMono(Map.class)
-                    .timeout(Duration.ofSeconds(3))
-                    .blockOptional()
-                    .orElse(null);
+    public ServiceInfo fetchServiceInfo(String url) {
+        return fetchServiceInfoAsync(url).block();
+    }
 
-            Map<String, String> out = new HashMap<>();
-            if (m != null) {
-                Object version = m.get("version");
-                Object service = m.get("service");
-                if (version != null) out.put("version", version.toString());
-                if (service != null) out.put("service", service.toString());
-            }
-            return out;
-        } catch (Exception e) {
-            return Map.of();
-        }
+    public Mono<ServiceInfo> fetchServiceInfoAsync(String url) {
+        return http.get(url, Duration.ofSeconds(3))
+                .map(resp -> ServiceInfo.parse(mapper, resp.body()))
+                .onErrorResume(e -> Mono.just(ServiceInfo.NONE));
     }
 
+    private static final String[] FALLBACK_SUFFIXES = {"", "/version", "/health", "/info", "/actuator/info"};
+
+    /** Suffix that last answered with usable metadata on a host; null if none of them did */
+    private record LearnedEndpoint(String suffix, Instant learnedAt) {}
+
+    /** By host:port, so APIs behind the same host share what one of them learned */
+    private final Map<String, LearnedEndpoint> learnedEndpoints = new ConcurrentHashMap<>();
+
     /**
      * Enhanced service info fetching with fallback endpoints
      */
-    public Map<String, String> fetchServiceInfoWithFallback(String baseUrl) {
-        String[] endpoints = {
-                baseUrl,
-                baseUrl + "/version",
-                baseUrl + "/health",
-                baseUrl + "/info",
-                baseUrl + "/actuator/info"
-        };
-
-        for (String endpoint : endpoints) {
-            Map<String, String> result = fetchServiceInfo(endpoint);
-            if (!result.isEmpty()) {
-                return result;
-            }
+    public ServiceInfo fetchServiceInfoWithFallback(String baseUrl) {
+        return fetchServiceInfoWithFallbackAsync(baseUrl).block();
+    }
+
+    /**
+     * Goes straight to the endpoint that worked last time on this URL's host. On a miss, or
+     * when that endpoint stops returning metadata, all fallback endpoints are raced in
+     * parallel and the first one with a usable payload is remembered for the host. A host
+     * where none of them has metadata is remembered as such, so it is not raced again on every
+     * probe; both kinds of entry expire after {@code monitoring.probe.discovery.ttl-ms}.
+     */
+    public Mono<ServiceInfo> fetchServiceInfoWithFallbackAsync(String baseUrl) {
+        String host;
+        try {
+            host = ProbeHttpClient.hostKey(URI.create(baseUrl));
+        } catch (IllegalArgumentException badUrl) {
+            return Mono.just(ServiceInfo.NONE);
+        }
+        LearnedEndpoint learned = learnedEndpoints.get(host);
+        if (learned == null || learned.learnedAt().plus(learnedEndpointTtl).isBefore(Instant.now())) {
+            serviceInfoMisses.increment();
+            return discoverServiceInfo(host, baseUrl);
+        }
+        if (learned.suffix() == null) {
+            serviceInfoHits.increment();
+            return Mono.just(ServiceInfo.NONE);
         }
+        return fetchServiceInfoAsync(baseUrl + learned.suffix())
+                .flatMap(meta -> {
+                    if (!meta.isEmpty()) {
+                        serviceInfoHits.increment();
+                        return Mono.just(meta);
+                    }
+                    serviceInfoStale.increment();
+                    learnedEndpoints.remove(host, learned);
+                    return discoverServiceInfo(host, baseUrl);
+                });
+    }
+
+    private Mono<ServiceInfo> discoverServiceInfo(String host, String baseUrl) {
+        return Flux.fromArray(FALLBACK_SUFFIXES)
+                .flatMap(suffix -> fetchServiceInfoAsync(baseUrl + suffix)
+                        .filter(meta -> !meta.isEmpty())
+                        .map(meta -> Map.entry(suffix, meta)), FALLBACK_SUFFIXES.length)
+                .next()
+                .map(hit -> {
+                    rememberEndpoint(host, hit.getKey());
+                    return hit.getValue();
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    rememberEndpoint(host, null);
+                    return ServiceInfo.NONE;
+                }));
+    }
 
-        return Map.of();
+    private void rememberEndpoint(String host, String suffix) {
+        if (learnedEndpoints.size() >= learnedEndpointsMax && !learnedEndpoints.containsKey(host)) {
+            // Evict the oldest entry; only happens once the cache is full
+            learnedEndpoints.entrySet().stream()
+                    .min(Map.Entry.comparingByValue(Comparator.comparing(LearnedEndpoint::learnedAt)))
+                    .ifPresent(oldest -> learnedEndpoints.remove(oldest.getKey(), oldest.getValue()));
+        }
+        learnedEndpoints.put(host, new LearnedEndpoint(suffix, Instant.now()));
     }
 
     /**
-     * Batch check multiple APIs
+     * Batch check multiple APIs, probing in list order and honouring each target's timeout
+     * override; the call timeout grows by as much as the override exceeds the default.
+     * Runs at most {@code monitoring.probe.max-in-flight} checks concurrently, each bounded by
+     * {@code monitoring.probe.call-timeout-ms}, so the batch takes roughly as long as its slowest
+     * host rather than the sum of all hosts. If {@code monitoring.probe.batch-timeout-ms} elapses
+     * first, the results collected so far are returned and the remaining checks are cancelled.
      */
-    public Map<Long, CheckResult> batchCheck(Map<Long, String> apiUrls) {
-        Map<Long, CheckResult> results = new HashMap<>();
-
-        for (Map.Entry<Long, String> entry : apiUrls.entrySet()) {
-            try {
-                CheckResult result = checkAndUpdate(entry.getKey(), entry.getValue());
-                results.put(entry.getKey(), result);
-            } catch (Exception e) {
-                results.put(entry.getKey(), new CheckResult("offline", 0));
-            }
+    public Map<Long, CheckResult> batchCheck(List<ProbeTarget> targets) {
+        Map<Long, CheckResult> results = new ConcurrentHashMap<>();
+
+        try {
+            Flux.fromIterable(targets)
+                    .flatMap(target -> {
+                                Duration timeout = target.timeoutMs() != null && target.timeoutMs() > 0
+                                        ? Duration.ofMillis(target.timeoutMs()) : PROBE_TIMEOUT;
+                                Duration limit = timeout.compareTo(PROBE_TIMEOUT) > 0
+                                        ? callTimeout.plus(timeout.minus(PROBE_TIMEOUT)) : callTimeout;
+                                return checkAndUpdateAsync(target, timeout)
+                                        .timeout(limit)
+                                        .onErrorReturn(new CheckResult("offline", 0))
+                                        .doOnNext(result -> results.put(target.id(), result));
+                            },
+                            maxInFlight)
+                    .then()
+                    .block(batchTimeout);
+        } catch (IllegalStateException timedOut) {
+            System.err.println(String.format(
+                    "Batch check timed out after %d ms - returning %d of %d results",
+                    batchTimeout.toMillis(), results.size(), targets.size()
+            ));
         }
 
-        return results;
+        return new HashMap<>(results);
     }
 
     /**
-     * Get API health summary
+     * API health summary from the latest probe snapshots, with latency percentiles over the
+     * last five minutes.
      */
     public Map<String, Object> getHealthSummary() {
-        // This would typically query your database for API status counts
-        // For now, returning a placeholder
+        Instant now = Instant.now();
+        int total = 0;
+        int online = 0;
+        long onlineResponseTime = 0;
+        for (ProbeSnapshot s : snapshots.all()) {
+            total++;
+            if ("online".equals(s.status())) {
+                online++;
+                onlineResponseTime += s.responseTimeMs();
+            }
+        }
+        LatencyHistograms.Percentiles p = latency.merged(
+                snapshots.all().stream().map(ProbeSnapshot::apiId).toList(),
+                LatencyHistograms.Window.FIVE_MINUTES, now.toEpochMilli());
+
         Map<String, Object> summary = new HashMap<>();
-        summary.put("totalApis", 0);
-        summary.put("onlineApis", 0);
-        summary.put("offlineApis", 0);
-        summary.put("averageResponseTime", 0);
-        summary.put("lastUpdated", Instant.now());
+        summary.put("totalApis", total);
+        summary.put("onlineApis", online);
+        summary.put("offlineApis", total - online);
+        summary.put("averageResponseTime", online == 0 ? 0 : Math.round((double) onlineResponseTime / online));
+        summary.put("p50ResponseTime", p.p50());
+        summary.put("p95ResponseTime", p.p95());
+        summary.put("p99ResponseTime", p.p99());
+        summary.put("maxResponseTime", p.max());
+        summary.put("lastUpdated", now);
 
         return summary;
     }
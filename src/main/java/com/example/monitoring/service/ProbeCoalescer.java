@@ -0,0 +1,116 @@
+package com.example.monitoring.service;
+
+import com.example.monitoring.service.ProbeHttpClient.ProbeResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight for probe GETs. Concurrent requests for the same URL share one upstream
+ * call, and its response is served again for {@code ttl}, so upstream load follows the number
+ * of distinct URLs rather than users x tabs x rows sharing a URL. Failures are shared while in
+ * flight but not kept; callers that joined get them as a {@link SharedProbeFailure}, with the
+ * time of the upstream failure, so they can tell it from a failure of their own.
+ * <p>
+ * A caller joins a call only if that call's timeout is at least its own, and then still
+ * applies its own timeout. Leaving early never cancels the shared call; the call itself is
+ * cut off at the timeout of the caller that started it, which ends the flight.
+ */
+class ProbeCoalescer {
+
+    private record Flight(CompletableFuture<ProbeResponse> result, Duration timeout) {}
+
+    /** Failure of a call this caller joined rather than made */
+    static class SharedProbeFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final Instant failedAt;
+
+        SharedProbeFailure(Throwable cause, Instant failedAt) {
+            super(cause.getMessage(), cause);
+            this.failedAt = failedAt;
+        }
+
+        Instant failedAt() {
+            return failedAt;
+        }
+    }
+
+    private record Recent(ProbeResponse response, long expiresAtNanos) {}
+
+    private final Duration ttl;
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+    private final Map<String, Recent> recent = new ConcurrentHashMap<>();
+    private final Counter calls;
+    private final Counter shared;
+    private final Counter reused;
+
+    ProbeCoalescer(MeterRegistry meters, Duration ttl) {
+        this.ttl = ttl;
+        this.calls = counter(meters, "call");
+        this.shared = counter(meters, "shared");
+        this.reused = counter(meters, "reused");
+    }
+
+    /** call: went upstream; shared: joined an in-flight call; reused: served a recent response */
+    private static Counter counter(MeterRegistry meters, String result) {
+        return Counter.builder("probe.coalesce")
+                .description("Probe GETs by single-flight result")
+                .tag("result", result)
+                .register(meters);
+    }
+
+    Mono<ProbeResponse> get(String url, Duration timeout, Supplier<Mono<ProbeResponse>> upstream) {
+        return Mono.defer(() -> {
+            Recent r = recent.get(url);
+            if (r != null && r.expiresAtNanos() - System.nanoTime() > 0) {
+                reused.increment();
+                return Mono.just(r.response());
+            }
+
+            Flight mine = new Flight(new CompletableFuture<>(), timeout);
+            Flight flight = flights.compute(url, (k, existing) ->
+                    existing != null && existing.timeout().compareTo(timeout) >= 0 ? existing : mine);
+            if (flight != mine) {
+                shared.increment();
+                // A copy, so that a caller timing out or cancelling leaves the shared result alone;
+                // such a timeout is this caller's own, failures of the call arrive as SharedProbeFailure
+                return Mono.fromFuture(flight.result().copy()).timeout(timeout);
+            }
+
+            calls.increment();
+            // Bounded here as well, so a hung call cannot keep its flight (and host slot) forever
+            upstream.get().timeout(timeout).subscribe(
+                    response -> {
+                        if (!ttl.isZero()) recent.put(url, new Recent(response, System.nanoTime() + ttl.toNanos()));
+                        flights.remove(url, mine);
+                        mine.result().complete(response);
+                    },
+                    error -> {
+                        flights.remove(url, mine);
+                        mine.result().completeExceptionally(new SharedProbeFailure(error, Instant.now()));
+                    },
+                    () -> {
+                        // Also runs after a response; only an empty result completes the future here
+                        flights.remove(url, mine);
+                        mine.result().complete(null);
+                    });
+            // The caller that went upstream gets the plain error
+            return Mono.fromFuture(mine.result().copy())
+                    .onErrorMap(SharedProbeFailure.class, Throwable::getCause);
+        });
+    }
+
+    /** Drop expired responses, so URLs no longer probed do not stay in memory */
+    void evictExpired() {
+        long now = System.nanoTime();
+        recent.values().removeIf(r -> r.expiresAtNanos() - now <= 0);
+    }
+}
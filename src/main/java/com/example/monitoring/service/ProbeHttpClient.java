@@ -0,0 +1,266 @@
+package com.example.monitoring.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.timeout.ReadTimeoutException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import javax.net.ssl.SSLException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared HTTP client for every probe of a monitored service (MonitoringService,
+ * ProxyController, EnhancedProxyController).
+ * Connections are pooled per remote host and kept alive between probe cycles, and a
+ * single TLS context is shared so HTTPS sessions are resumed instead of renegotiated.
+ * Calls to one host are limited by a {@link HostBulkheads} bulkhead, so a slow host cannot
+ * take every probe slot, and concurrent or repeated GETs of one URL are coalesced by
+ * {@link ProbeCoalescer}.
+ */
+@Component
+public class ProbeHttpClient {
+
+    /**
+     * Raw response of a probe GET. {@code receivedAt} identifies the upstream call: a response
+     * shared with or reused by other callers keeps it, so each API records it only once.
+     */
+    public record ProbeResponse(int httpStatus, String body, long elapsedMs, Instant receivedAt) {}
+
+    /** Outcome tag of the probe.requests timer */
+    enum Outcome {
+        ONLINE("online"), OFFLINE("offline"), TIMEOUT("timeout"), DNS_ERROR("dns_error"), REJECTED("rejected");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final ConnectionProvider pool;
+    private final WebClient webClient;
+    private final Duration defaultTimeout;
+    private final Map<String, ConnectionPoolMetrics> poolMetrics = new ConcurrentHashMap<>();
+    private final Map<Outcome, Timer> requestTimers = new EnumMap<>(Outcome.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final HostBulkheads bulkheads;
+    private final ProbeCoalescer coalescer;
+
+    public ProbeHttpClient(MeterRegistry meters,
+                           @Value("${monitoring.http.max-connections-per-host:64}") int maxConnectionsPerHost,
+                           @Value("${monitoring.http.connect-timeout-ms:5000}") int connectTimeoutMs,
+                           @Value("${monitoring.http.response-timeout-ms:8000}") long responseTimeoutMs,
+                           @Value("${monitoring.http.max-idle-ms:120000}") long maxIdleMs,
+                           @Value("${monitoring.http.tls-session-timeout-s:3600}") long tlsSessionTimeoutS,
+                           @Value("${monitoring.http.bulkhead.max-concurrent-per-host:32}") int bulkheadMaxConcurrent,
+                           @Value("${monitoring.http.bulkhead.max-queued-per-host:256}") int bulkheadMaxQueued,
+                           @Value("${monitoring.http.bulkhead.idle-evict-ms:600000}") long bulkheadIdleEvictMs,
+                           @Value("${monitoring.http.coalesce.ttl-ms:5000}") long coalesceTtlMs) throws SSLException {
+        this.defaultTimeout = Duration.ofMillis(responseTimeoutMs);
+        this.bulkheads = new HostBulkheads(meters, bulkheadMaxConcurrent, bulkheadMaxQueued,
+                Duration.ofMillis(Math.max(0, bulkheadIdleEvictMs)));
+        this.coalescer = new ProbeCoalescer(meters, Duration.ofMillis(Math.max(0, coalesceTtlMs)));
+
+        for (Outcome outcome : Outcome.values()) {
+            requestTimers.put(outcome, Timer.builder("probe.requests")
+                    .description("Probe GETs against monitored services, by outcome")
+                    .tag("outcome", outcome.tag)
+                    .publishPercentileHistogram()
+                    .register(meters));
+        }
+        Gauge.builder("probe.in.flight", inFlight, AtomicInteger::get)
+                .description("Probe GETs currently waiting for a response")
+                .register(meters);
+
+        // Pools are created per remote address; idle connections outlive a probe cycle
+        this.pool = ConnectionProvider.builder("monitoring-probe")
+                .maxConnections(Math.max(1, maxConnectionsPerHost))
+                .pendingAcquireMaxCount(-1)
+                .maxIdleTime(Duration.ofMillis(maxIdleMs))
+                .evictInBackground(Duration.ofSeconds(30))
+                .metrics(true, () -> new ConnectionProvider.MeterRegistrar() {
+                    @Override
+                    public void registerMetrics(String poolName, String id, SocketAddress remoteAddress,
+                                                ConnectionPoolMetrics metrics) {
+                        poolMetrics.put(hostKey(remoteAddress), metrics);
+                    }
+
+                    @Override
+                    public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+                        poolMetrics.remove(hostKey(remoteAddress));
+                    }
+                })
+                .build();
+
+        SslContext tls = SslContextBuilder.forClient()
+                .sessionCacheSize(10_000)
+                .sessionTimeout(tlsSessionTimeoutS)
+                .build();
+
+        HttpClient http = HttpClient.create(pool)
+                .keepAlive(true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(defaultTimeout)
+                .secure(spec -> spec.sslContext(tls));
+
+        this.webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(http))
+                .build();
+    }
+
+    public WebClient webClient() {
+        return webClient;
+    }
+
+    /**
+     * GET the URL and return status, body and latency whatever the HTTP status.
+     * Connection failures, timeouts and bulkhead rejections are signalled as errors. The
+     * timeout includes any wait for a slot on the host; the reported latency does not.
+     * A response fetched for the same URL within {@code monitoring.http.coalesce.ttl-ms}, or
+     * still in flight, is returned instead of calling the service again.
+     */
+    public Mono<ProbeResponse> get(String url, Duration timeout) {
+        return coalescer.get(url, timeout, () -> fetch(url, timeout));
+    }
+
+    private Mono<ProbeResponse> fetch(String url, Duration timeout) {
+        return Mono.defer(() -> {
+            URI uri = URI.create(url);
+            long startNanos = System.nanoTime();
+            return bulkheads.run(hostKey(uri), Mono.defer(() -> call(uri, timeout)))
+                    .timeout(timeout)
+                    .doOnSuccess(resp -> record(resp != null && resp.httpStatus() / 100 == 2
+                            ? Outcome.ONLINE : Outcome.OFFLINE, startNanos))
+                    .doOnError(e -> record(outcomeOf(e), startNanos));
+        });
+    }
+
+    private Mono<ProbeResponse> call(URI uri, Duration timeout) {
+        Instant start = Instant.now();
+        inFlight.incrementAndGet();
+        return webClient.get()
+                .uri(uri)
+                .accept(MediaType.APPLICATION_JSON, MediaType.ALL)
+                .httpRequest(req -> {
+                    // Per-call timeouts may be longer than the client-wide response timeout
+                    if (req.getNativeRequest() instanceof HttpClientRequest nativeRequest) {
+                        nativeRequest.responseTimeout(timeout);
+                    }
+                })
+                .exchangeToMono(resp -> resp.bodyToMono(String.class)
+                        .defaultIfEmpty("")
+                        .map(body -> {
+                            Instant receivedAt = Instant.now();
+                            return new ProbeResponse(resp.statusCode().value(), body,
+                                    Duration.between(start, receivedAt).toMillis(), receivedAt);
+                        }))
+                .doFinally(signal -> inFlight.decrementAndGet());
+    }
+
+    private void record(Outcome outcome, long startNanos) {
+        requestTimers.get(outcome).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    static Outcome outcomeOf(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof UnknownHostException) return Outcome.DNS_ERROR;
+            if (t instanceof HostBulkheads.BulkheadFullException) return Outcome.REJECTED;
+            if (t instanceof TimeoutException || t instanceof ReadTimeoutException
+                    || t instanceof ConnectTimeoutException) return Outcome.TIMEOUT;
+        }
+        return Outcome.OFFLINE;
+    }
+
+    public Mono<ProbeResponse> get(String url) {
+        return get(url, defaultTimeout);
+    }
+
+    /**
+     * Connection pool usage per remote host, for sizing max-connections-per-host, and bulkhead
+     * usage per probed host (active, queued, rejected).
+     */
+    public Map<String, Object> poolStats() {
+        Map<String, Object> hosts = new TreeMap<>();
+        int active = 0, idle = 0, pending = 0;
+        for (Map.Entry<String, ConnectionPoolMetrics> e : poolMetrics.entrySet()) {
+            ConnectionPoolMetrics m = e.getValue();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("active", m.acquiredSize());
+            row.put("idle", m.idleSize());
+            row.put("allocated", m.allocatedSize());
+            row.put("pendingAcquires", m.pendingAcquireSize());
+            row.put("maxConnections", m.maxAllocatedSize());
+            hosts.put(e.getKey(), row);
+            active += m.acquiredSize();
+            idle += m.idleSize();
+            pending += m.pendingAcquireSize();
+        }
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("active", active);
+        out.put("idle", idle);
+        out.put("pendingAcquires", pending);
+        out.put("hosts", hosts);
+        out.put("bulkheads", bulkheads.stats());
+        out.put("timestamp", Instant.now());
+        return out;
+    }
+
+    /** host:port of a probe URL, with the scheme's default port if none is given */
+    static String hostKey(URI uri) {
+        if (uri.getHost() == null) throw new IllegalArgumentException("URL has no host: " + uri);
+        int port = uri.getPort() != -1 ? uri.getPort() : ("https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80);
+        return uri.getHost() + ":" + port;
+    }
+
+    private static String hostKey(SocketAddress address) {
+        if (address instanceof InetSocketAddress inet) {
+            return inet.getHostString() + ":" + inet.getPort();
+        }
+        return address.toString();
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void evictCoalesced() {
+        coalescer.evictExpired();
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdleBulkheads() {
+        bulkheads.evictIdle();
+    }
+
+    @PreDestroy
+    public void close() {
+        pool.dispose();
+    }
+}
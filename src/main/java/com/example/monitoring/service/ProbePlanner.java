@@ -0,0 +1,194 @@
+package com.example.monitoring.service;
+
+import com.example.monitoring.repo.ProjectRepository.ProbeTarget;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides when each API is probed next.
+ * <p>
+ * Stable APIs (online, same version) back off: every
+ * {@code monitoring.probe.adaptive.stable-probes-per-step} unchanged probes double the interval,
+ * starting from {@code monitoring.probe.interval-ms} and up to
+ * {@code monitoring.probe.adaptive.max-interval-ms}. Non-prod environments start from a
+ * multiple of the base interval. After a failure or a version change the next
+ * {@code hot-probes} probes run every {@code min-interval-ms}. An {@code apis.probe_interval_ms}
+ * value replaces all of this with a fixed interval.
+ * <p>
+ * {@code failure-threshold} consecutive failures open the API's circuit: it is not probed for
+ * {@code open-ms}, doubled on every further trip up to {@code max-open-ms}. When that expires a
+ * single half-open probe decides between closing the circuit and opening it again.
+ */
+@Component
+public class ProbePlanner {
+
+    public enum Circuit { CLOSED, OPEN, HALF_OPEN }
+
+    /** Schedule and circuit of one API, as reported by {@link #state} */
+    public record ApiSchedule(Long apiId, Instant nextDueAt, long intervalMs, Circuit circuit,
+                              int consecutiveFailures, int stableProbes) {}
+
+    private static final class State {
+        String environment;
+        Integer intervalOverrideMs;
+        String lastVersion;
+        int stableProbes;
+        int hotProbesLeft;
+        int consecutiveFailures;
+        int trips;
+        long intervalMs;
+        Circuit circuit = Circuit.CLOSED;
+        Instant nextDueAt = Instant.EPOCH;
+    }
+
+    private final Map<Long, State> states = new ConcurrentHashMap<>();
+    private final long baseIntervalMs;
+    private final long minIntervalMs;
+    private final long maxIntervalMs;
+    private final int stableProbesPerStep;
+    private final int hotProbes;
+    private final int failureThreshold;
+    private final long openMs;
+    private final long maxOpenMs;
+
+    public ProbePlanner(MeterRegistry meters,
+                        @Value("${monitoring.probe.interval-ms:30000}") long baseIntervalMs,
+                        @Value("${monitoring.probe.adaptive.min-interval-ms:10000}") long minIntervalMs,
+                        @Value("${monitoring.probe.adaptive.max-interval-ms:300000}") long maxIntervalMs,
+                        @Value("${monitoring.probe.adaptive.stable-probes-per-step:5}") int stableProbesPerStep,
+                        @Value("${monitoring.probe.adaptive.hot-probes:3}") int hotProbes,
+                        @Value("${monitoring.probe.circuit.failure-threshold:3}") int failureThreshold,
+                        @Value("${monitoring.probe.circuit.open-ms:60000}") long openMs,
+                        @Value("${monitoring.probe.circuit.max-open-ms:1800000}") long maxOpenMs) {
+        this.baseIntervalMs = Math.max(1, baseIntervalMs);
+        this.minIntervalMs = Math.max(1, Math.min(minIntervalMs, this.baseIntervalMs));
+        this.maxIntervalMs = Math.max(this.baseIntervalMs, maxIntervalMs);
+        this.stableProbesPerStep = Math.max(1, stableProbesPerStep);
+        this.hotProbes = Math.max(0, hotProbes);
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMs = Math.max(1, openMs);
+        this.maxOpenMs = Math.max(this.openMs, maxOpenMs);
+
+        for (Circuit circuit : Circuit.values()) {
+            Gauge.builder("probe.circuit", states, s -> s.values().stream().filter(st -> st.circuit == circuit).count())
+                    .description("APIs by probe circuit state")
+                    .tag("state", circuit.name().toLowerCase())
+                    .register(meters);
+        }
+    }
+
+    /**
+     * APIs due at {@code now}, prod first and then the most overdue. Returned APIs are leased
+     * for one base interval, so one whose probe never reports back is retried after that.
+     */
+    public List<ProbeTarget> due(List<ProbeTarget> targets, Instant now) {
+        List<ProbeTarget> due = new ArrayList<>();
+        Map<Long, Instant> dueAt = new LinkedHashMap<>();
+        for (ProbeTarget t : targets) {
+            State s = states.computeIfAbsent(t.id(), id -> new State());
+            synchronized (s) {
+                s.environment = t.environment();
+                s.intervalOverrideMs = t.intervalMs() != null && t.intervalMs() > 0 ? t.intervalMs() : null;
+                if (s.nextDueAt.isAfter(now)) continue;
+                if (s.circuit == Circuit.OPEN) s.circuit = Circuit.HALF_OPEN;
+                dueAt.put(t.id(), s.nextDueAt);
+                s.nextDueAt = now.plusMillis(baseIntervalMs);
+            }
+            due.add(t);
+        }
+        due.sort(Comparator.comparingInt((ProbeTarget t) -> priority(t.environment()))
+                .thenComparing(t -> dueAt.get(t.id())));
+        return due;
+    }
+
+    /** Feed back one probe result; any probe counts, whoever triggered it */
+    public void onResult(Long apiId, boolean ok, String version, Instant at) {
+        State s = states.computeIfAbsent(apiId, id -> new State());
+        synchronized (s) {
+            boolean versionChanged = version != null && s.lastVersion != null && !version.equals(s.lastVersion);
+            if (version != null) s.lastVersion = version;
+
+            if (!ok) {
+                s.consecutiveFailures++;
+                s.stableProbes = 0;
+                s.hotProbesLeft = hotProbes;
+                if (s.circuit == Circuit.HALF_OPEN || s.consecutiveFailures >= failureThreshold) {
+                    s.trips++;
+                    s.circuit = Circuit.OPEN;
+                    s.intervalMs = Math.min(maxOpenMs, openMs << Math.min(s.trips - 1, 20));
+                    s.nextDueAt = at.plusMillis(s.intervalMs);
+                    return;
+                }
+            } else {
+                s.consecutiveFailures = 0;
+                s.trips = 0;
+                s.circuit = Circuit.CLOSED;
+                if (versionChanged) {
+                    s.stableProbes = 0;
+                    s.hotProbesLeft = hotProbes;
+                } else if (s.hotProbesLeft > 0) {
+                    s.hotProbesLeft--;
+                } else {
+                    s.stableProbes++;
+                }
+            }
+            s.intervalMs = intervalOf(s);
+            s.nextDueAt = at.plusMillis(s.intervalMs);
+        }
+    }
+
+    private long intervalOf(State s) {
+        if (s.intervalOverrideMs != null) return s.intervalOverrideMs;
+        if (s.hotProbesLeft > 0 || s.consecutiveFailures > 0) return minIntervalMs;
+        int steps = Math.min(s.stableProbes / stableProbesPerStep, 20);
+        long interval = baseIntervalMs * environmentFactor(s.environment) << steps;
+        return Math.max(minIntervalMs, Math.min(maxIntervalMs, interval));
+    }
+
+    /** Probe interval multiplier: prod and oat at the base rate, uat at 2x, dev and others at 4x */
+    private static int environmentFactor(String environment) {
+        return switch (ComplianceRules.normalizeEnvironment(environment)) {
+            case "prod", "oat" -> 1;
+            case "uat" -> 2;
+            default -> 4;
+        };
+    }
+
+    private static int priority(String environment) {
+        return switch (ComplianceRules.normalizeEnvironment(environment)) {
+            case "prod" -> 0;
+            case "oat" -> 1;
+            case "uat" -> 2;
+            default -> 3;
+        };
+    }
+
+    /** Whether the API's circuit is open, i.e. it is currently not being probed */
+    public boolean isOpen(Long apiId) {
+        State s = states.get(apiId);
+        return s != null && s.circuit == Circuit.OPEN;
+    }
+
+    public ApiSchedule state(Long apiId) {
+        State s = states.get(apiId);
+        if (s == null) return null;
+        synchronized (s) {
+            return new ApiSchedule(apiId, s.nextDueAt, s.intervalMs, s.circuit, s.consecutiveFailures, s.stableProbes);
+        }
+    }
+
+    /** Probe the API at the next tick, e.g. after its URL or probe settings changed */
+    public void reset(Long apiId) {
+        states.remove(apiId);
+    }
+}
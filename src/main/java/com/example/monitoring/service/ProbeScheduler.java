@@ -0,0 +1,119 @@
+package com.example.monitoring.service;
+
+import com.example.monitoring.repo.ProjectRepository;
+import com.example.monitoring.repo.ProjectRepository.ProbeTarget;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Probes registered APIs in the background and refreshes {@link ProbeSnapshotStore}, so
+ * GET /api/data/projects only serves the snapshot. Every {@code monitoring.probe.tick-ms} the
+ * APIs that {@link ProbePlanner} considers due are probed, prod first.
+ * <p>
+ * The target list is kept between ticks and read again after {@link #targetsChanged} or every
+ * {@code monitoring.probe.targets-reload-ms}. Only APIs that were in the previous list and are
+ * gone from the new one are dropped from the in-memory state (and reported as removed), unless
+ * DataController already did so; ids are never reused, so an API added while the list was
+ * being read is not touched.
+ */
+@Component
+public class ProbeScheduler {
+
+    private final ProjectRepository repo;
+    private final MonitoringService monitoring;
+    private final ProbeSnapshotStore snapshots;
+    private final ComplianceMatrix complianceMatrix;
+    private final ProbeWriteBuffer writeBuffer;
+    private final LatencyHistograms latency;
+    private final ProbePlanner planner;
+    private final ProbeTimeSeries timeSeries;
+    private final StatusEventBus statusEvents;
+    private final Duration targetsReload;
+
+    private final AtomicBoolean targetsStale = new AtomicBoolean(true);
+    private final Set<Long> alreadyForgotten = ConcurrentHashMap.newKeySet();
+    private List<ProbeTarget> targets = List.of();
+    private Instant targetsLoadedAt = Instant.EPOCH;
+
+    public ProbeScheduler(ProjectRepository repo, MonitoringService monitoring, ProbeSnapshotStore snapshots,
+                          ComplianceMatrix complianceMatrix, ProbeWriteBuffer writeBuffer, LatencyHistograms latency,
+                          ProbePlanner planner, ProbeTimeSeries timeSeries, StatusEventBus statusEvents,
+                          @Value("${monitoring.probe.targets-reload-ms:60000}") long targetsReloadMs) {
+        this.repo = repo;
+        this.monitoring = monitoring;
+        this.snapshots = snapshots;
+        this.complianceMatrix = complianceMatrix;
+        this.writeBuffer = writeBuffer;
+        this.latency = latency;
+        this.planner = planner;
+        this.timeSeries = timeSeries;
+        this.statusEvents = statusEvents;
+        this.targetsReload = Duration.ofMillis(Math.max(1, targetsReloadMs));
+    }
+
+    /** APIs were added or changed: read the target list again at the next tick */
+    public void targetsChanged() {
+        targetsStale.set(true);
+    }
+
+    /** APIs were deleted and the caller already forgot them everywhere but the write buffer */
+    public void apisDeleted(Collection<Long> apiIds) {
+        alreadyForgotten.addAll(apiIds);
+        targetsStale.set(true);
+    }
+
+    @Scheduled(initialDelayString = "${monitoring.probe.initial-delay-ms:5000}",
+               fixedDelayString = "${monitoring.probe.tick-ms:5000}")
+    public void refreshAll() {
+        Instant start = Instant.now();
+        if (targetsStale.getAndSet(false) || !start.isBefore(targetsLoadedAt.plus(targetsReload))) {
+            reloadTargets(start);
+        }
+
+        List<ProbeTarget> due = planner.due(targets, start);
+        if (due.isEmpty()) return;
+
+        monitoring.batchCheck(due);
+        System.out.println(String.format(
+                "Probe cycle finished - %d of %d APIs in %d ms",
+                due.size(), targets.size(), Duration.between(start, Instant.now()).toMillis()
+        ));
+    }
+
+    private void reloadTargets(Instant now) {
+        List<ProbeTarget> loaded = repo.findProbeTargets();
+
+        Set<Long> loadedIds = new HashSet<>();
+        for (ProbeTarget t : loaded) {
+            loadedIds.add(t.id());
+        }
+        // APIs deleted outside DataController (which forgets them itself), e.g. directly in the database
+        for (ProbeTarget t : targets) {
+            Long id = t.id();
+            if (loadedIds.contains(id)) continue;
+            writeBuffer.remove(id);
+            if (alreadyForgotten.remove(id)) continue;
+            snapshots.remove(id);
+            complianceMatrix.remove(id);
+            latency.remove(id);
+            timeSeries.forget(id);
+            planner.reset(id);
+            statusEvents.onRemoved(id);
+        }
+        // Deletes reported after this SELECT stay until the next reload no longer lists them
+        alreadyForgotten.removeIf(id -> !loadedIds.contains(id));
+
+        targets = loaded;
+        targetsLoadedAt = now;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.monitoring.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latest probe result per API, kept in memory so read endpoints never have to
+ * call the monitored services themselves. Written by {@link MonitoringService}
+ * after every probe, read by the dashboard endpoints.
+ */
+@Component
+public class ProbeSnapshotStore {
+
+    public record ProbeSnapshot(Long apiId, String status, int responseTimeMs,
+                                String version, String service, Instant checkedAt) {
+
+        public long ageMs(Instant now) {
+            return Duration.between(checkedAt, now).toMillis();
+        }
+    }
+
+    /** Outcome of {@link #putIfNewer}: the snapshot replaced, and whether the new one was stored */
+    public record Update(ProbeSnapshot previous, boolean applied) {}
+
+    private final Map<Long, ProbeSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * @return the snapshot it replaces, or null for the first probe of this API
+     */
+    public ProbeSnapshot put(ProbeSnapshot snapshot) {
+        return snapshots.put(snapshot.apiId(), snapshot);
+    }
+
+    /**
+     * Store the snapshot unless the API already has one checked at the same time or later,
+     * i.e. the same upstream response was recorded already or a newer probe came first.
+     */
+    public Update putIfNewer(ProbeSnapshot snapshot) {
+        ProbeSnapshot[] previous = new ProbeSnapshot[1];
+        boolean[] applied = new boolean[1];
+        snapshots.compute(snapshot.apiId(), (id, current) -> {
+            previous[0] = current;
+            applied[0] = current == null || snapshot.checkedAt().isAfter(current.checkedAt());
+            return applied[0] ? snapshot : current;
+        });
+        return new Update(previous[0], applied[0]);
+    }
+
+    public ProbeSnapshot get(Long apiId) {
+        return snapshots.get(apiId);
+    }
+
+    public Collection<ProbeSnapshot> all() {
+        return snapshots.values();
+    }
+
+    public void remove(Long apiId) {
+        snapshots.remove(apiId);
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.monitoring.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Probe latency time series. Every probe result is appended to probe_samples (batched, see
+ * {@link #flush()}), and completed windows are rolled up into probe_rollups at 1 minute,
+ * 1 hour and 1 day resolution, each level computed from the one below it. Raw samples
+ * expire after {@code monitoring.series.raw-retention-hours}; rollups are kept much longer.
+ */
+@Service
+public class ProbeTimeSeries {
+
+    public enum Resolution {
+        RAW("raw", Duration.ZERO),
+        MINUTE("1m", Duration.ofMinutes(1)),
+        HOUR("1h", Duration.ofHours(1)),
+        DAY("1d", Duration.ofDays(1));
+
+        private final String label;
+        private final Duration step;
+
+        Resolution(String label, Duration step) {
+            this.label = label;
+            this.step = step;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        public Duration step() {
+            return step;
+        }
+
+        public static Resolution fromLabel(String label) {
+            for (Resolution r : values()) {
+                if (r.label.equalsIgnoreCase(label)) return r;
+            }
+            throw new IllegalArgumentException("Unknown resolution '" + label + "' (expected raw, 1m, 1h or 1d)");
+        }
+
+        private Instant floor(Instant t) {
+            long stepMs = step.toMillis();
+            return Instant.ofEpochMilli(Math.floorDiv(t.toEpochMilli(), stepMs) * stepMs);
+        }
+    }
+
+    /** One point of a range query; a raw sample is a point with count 1 */
+    public record Point(Instant t, int count, int errors, Integer min, Integer max, Double mean) {}
+
+    private record Sample(Long apiId, Instant at, Integer responseTime, boolean ok) {}
+
+    private final JdbcTemplate jdbc;
+    private final ConcurrentLinkedQueue<Sample> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final int maxPending;
+    private final Duration grace;
+    private final Duration probeInterval;
+    private final int maxPoints;
+    private final Map<Resolution, Duration> retention = new EnumMap<>(Resolution.class);
+
+    /** Start of the next window to roll up, per rollup resolution; loaded lazily */
+    private final Map<Resolution, Instant> nextWindow = new EnumMap<>(Resolution.class);
+
+    public ProbeTimeSeries(JdbcTemplate jdbc,
+                           @Value("${monitoring.series.flush-interval-ms:5000}") long flushIntervalMs,
+                           @Value("${monitoring.series.max-pending:100000}") int maxPending,
+                           @Value("${monitoring.series.raw-retention-hours:48}") long rawRetentionHours,
+                           @Value("${monitoring.series.minute-retention-days:14}") long minuteRetentionDays,
+                           @Value("${monitoring.series.hour-retention-days:400}") long hourRetentionDays,
+                           @Value("${monitoring.series.day-retention-days:1825}") long dayRetentionDays,
+                           @Value("${monitoring.series.max-points:1000}") int maxPoints,
+                           @Value("${monitoring.probe.interval-ms:30000}") long probeIntervalMs) {
+        this.jdbc = jdbc;
+        this.maxPending = Math.max(1, maxPending);
+        // A sample taken just before a window closes may still sit in the queue for one flush
+        this.grace = Duration.ofMillis(2 * flushIntervalMs);
+        this.probeInterval = Duration.ofMillis(Math.max(1, probeIntervalMs));
+        this.maxPoints = Math.max(1, maxPoints);
+        retention.put(Resolution.RAW, Duration.ofHours(rawRetentionHours));
+        retention.put(Resolution.MINUTE, Duration.ofDays(minuteRetentionDays));
+        retention.put(Resolution.HOUR, Duration.ofDays(hourRetentionDays));
+        retention.put(Resolution.DAY, Duration.ofDays(dayRetentionDays));
+    }
+
+    public void record(Long apiId, String status, Integer responseTime, Instant at) {
+        if (pendingCount.incrementAndGet() > maxPending) {
+            pendingCount.decrementAndGet();
+            return; // database is not keeping up; drop rather than grow without bound
+        }
+        pending.add(new Sample(apiId, at, responseTime, "online".equals(status)));
+    }
+
+    @Scheduled(fixedDelayString = "${monitoring.series.flush-interval-ms:5000}")
+    public void flush() {
+        try {
+            writeSamples();
+            Instant now = Instant.now();
+            rollUp(Resolution.MINUTE, now);
+            rollUp(Resolution.HOUR, now);
+            rollUp(Resolution.DAY, now);
+        } catch (Exception e) {
+            System.err.println("Probe time series flush failed: " + e.getMessage());
+        }
+    }
+
+    private void writeSamples() {
+        List<Sample> batch = new ArrayList<>();
+        Sample s;
+        while ((s = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            batch.add(s);
+        }
+        if (batch.isEmpty()) return;
+
+        jdbc.batchUpdate(
+                "INSERT INTO probe_samples (api_id, sampled_at, response_time, ok) VALUES (?, ?, ?, ?)",
+                batch, batch.size(), (ps, sample) -> {
+                    ps.setLong(1, sample.apiId());
+                    ps.setTimestamp(2, Timestamp.from(sample.at()));
+                    ps.setObject(3, sample.responseTime());
+                    ps.setBoolean(4, sample.ok());
+                });
+    }
+
+    /**
+     * Rolls up every window of {@code res} that closed at least {@link #grace} ago. Levels run
+     * finest first, so the source rows of a window are complete when it is rolled up.
+     */
+    private void rollUp(Resolution res, Instant now) {
+        Instant window = nextWindow.computeIfAbsent(res, r -> firstPendingWindow(r, null));
+        while (window != null && !window.plus(res.step()).plus(grace).isAfter(now)) {
+            Instant end = window.plus(res.step());
+            int rows = rollUpWindow(res, window, end);
+            // Skip over gaps (e.g. downtime) in one step instead of one empty window at a time
+            window = rows > 0 ? end : firstPendingWindow(res, end);
+            if (window == null) {
+                nextWindow.remove(res);
+                return;
+            }
+            nextWindow.put(res, window);
+        }
+    }
+
+    /**
+     * Window holding the oldest source row at or after {@code from} that is not rolled up yet;
+     * null if there is none. Without {@code from}, resumes after the last stored rollup.
+     */
+    private Instant firstPendingWindow(Resolution res, Instant from) {
+        if (from == null) {
+            Timestamp last = jdbc.queryForObject(
+                    "SELECT MAX(bucket_start) FROM probe_rollups WHERE resolution_s = ?",
+                    Timestamp.class, res.step().toSeconds());
+            from = last != null ? last.toInstant().plus(res.step()) : Instant.EPOCH;
+        }
+        Timestamp first = res == Resolution.MINUTE
+                ? jdbc.queryForObject("SELECT MIN(sampled_at) FROM probe_samples WHERE sampled_at >= ?",
+                        Timestamp.class, Timestamp.from(from))
+                : jdbc.queryForObject(
+                        "SELECT MIN(bucket_start) FROM probe_rollups WHERE resolution_s = ? AND bucket_start >= ?",
+                        Timestamp.class, finer(res).step().toSeconds(), Timestamp.from(from));
+        return first == null ? null : res.floor(first.toInstant());
+    }
+
+    private static Resolution finer(Resolution res) {
+        return res == Resolution.DAY ? Resolution.HOUR : Resolution.MINUTE;
+    }
+
+    private int rollUpWindow(Resolution res, Instant start, Instant end) {
+        long resolutionS = res.step().toSeconds();
+        Timestamp from = Timestamp.from(start);
+        Timestamp to = Timestamp.from(end);
+        // Re-running a window (e.g. after a crash mid-flush) replaces it
+        jdbc.update("DELETE FROM probe_rollups WHERE resolution_s = ? AND bucket_start = ?", resolutionS, from);
+        if (res == Resolution.MINUTE) {
+            return jdbc.update("""
+                INSERT INTO probe_rollups
+                    (resolution_s, api_id, bucket_start, sample_count, error_count, min_ms, max_ms, sum_ms)
+                SELECT ?, api_id, ?, COUNT(*),
+                       SUM(CASE WHEN ok THEN 0 ELSE 1 END),
+                       MIN(CASE WHEN ok THEN response_time END),
+                       MAX(CASE WHEN ok THEN response_time END),
+                       SUM(CASE WHEN ok THEN response_time END)
+                FROM probe_samples
+                WHERE sampled_at >= ? AND sampled_at < ?
+                GROUP BY api_id
+                """, resolutionS, from, from, to);
+        }
+        return jdbc.update("""
+            INSERT INTO probe_rollups
+                (resolution_s, api_id, bucket_start, sample_count, error_count, min_ms, max_ms, sum_ms)
+            SELECT ?, api_id, ?, SUM(sample_count), SUM(error_count), MIN(min_ms), MAX(max_ms), SUM(sum_ms)
+            FROM probe_rollups
+            WHERE resolution_s = ? AND bucket_start >= ? AND bucket_start < ?
+            GROUP BY api_id
+            """, resolutionS, from, finer(res).step().toSeconds(), from, to);
+    }
+
+    @Scheduled(fixedDelayString = "${monitoring.series.retention-interval-ms:3600000}")
+    public void applyRetention() {
+        try {
+            Instant now = Instant.now();
+            int raw = jdbc.update("DELETE FROM probe_samples WHERE sampled_at < ?",
+                    Timestamp.from(now.minus(retention.get(Resolution.RAW))));
+            int rollups = 0;
+            for (Resolution res : List.of(Resolution.MINUTE, Resolution.HOUR, Resolution.DAY)) {
+                rollups += jdbc.update("DELETE FROM probe_rollups WHERE resolution_s = ? AND bucket_start < ?",
+                        res.step().toSeconds(), Timestamp.from(now.minus(retention.get(res))));
+            }
+            if (raw + rollups > 0) {
+                System.out.println(String.format(
+                        "Probe time series retention - %d samples, %d rollups expired", raw, rollups));
+            }
+        } catch (Exception e) {
+            System.err.println("Probe time series retention failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Finest resolution that still covers {@code from} and returns at most
+     * {@code monitoring.series.max-points} points for the window; raw samples are assumed to
+     * arrive once per probe interval.
+     */
+    public Resolution resolutionFor(Instant from, Instant to) {
+        Instant now = Instant.now();
+        Duration window = Duration.between(from, to);
+        for (Resolution res : Resolution.values()) {
+            Duration step = res == Resolution.RAW ? probeInterval : res.step();
+            boolean retained = !from.isBefore(now.minus(retention.get(res)));
+            if (retained && window.toMillis() / step.toMillis() <= maxPoints) return res;
+        }
+        return Resolution.DAY;
+    }
+
+    public List<Point> range(Long apiId, Instant from, Instant to, Resolution res) {
+        if (res == Resolution.RAW) {
+            return jdbc.query("""
+                SELECT sampled_at, response_time, ok FROM probe_samples
+                WHERE api_id = ? AND sampled_at >= ? AND sampled_at < ?
+                ORDER BY sampled_at
+                """, (rs, i) -> {
+                    boolean ok = rs.getBoolean("ok");
+                    Integer rt = ok ? (Integer) rs.getObject("response_time") : null;
+                    return new Point(rs.getTimestamp("sampled_at").toInstant(), 1, ok ? 0 : 1,
+                            rt, rt, rt == null ? null : rt.doubleValue());
+                }, apiId, Timestamp.from(from), Timestamp.from(to));
+        }
+        return jdbc.query("""
+            SELECT bucket_start, sample_count, error_count, min_ms, max_ms, sum_ms FROM probe_rollups
+            WHERE resolution_s = ? AND api_id = ? AND bucket_start >= ? AND bucket_start < ?
+            ORDER BY bucket_start
+            """, (rs, i) -> mapRollup(rs), res.step().toSeconds(), apiId,
+                Timestamp.from(res.floor(from)), Timestamp.from(to));
+    }
+
+    private static Point mapRollup(ResultSet rs) throws SQLException {
+        int count = rs.getInt("sample_count");
+        int errors = rs.getInt("error_count");
+        Number sum = (Number) rs.getObject("sum_ms");
+        int ok = count - errors;
+        return new Point(
+                rs.getTimestamp("bucket_start").toInstant(),
+                count,
+                errors,
+                (Integer) rs.getObject("min_ms"),
+                (Integer) rs.getObject("max_ms"),
+                sum == null || ok == 0 ? null : sum.doubleValue() / ok
+        );
+    }
+
+    /**
+     * Drop all samples and rollups of a deleted API.
+     */
+    public void forget(Long apiId) {
+        pending.removeIf(s -> s.apiId().equals(apiId));
+        pendingCount.set(pending.size());
+        jdbc.update("DELETE FROM probe_samples WHERE api_id = ?", apiId);
+        jdbc.update("DELETE FROM probe_rollups WHERE api_id = ?", apiId);
+    }
+}
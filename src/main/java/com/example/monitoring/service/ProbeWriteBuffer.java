@@ -0,0 +1,133 @@
+package com.example.monitoring.service;
+
+import com.example.monitoring.repo.ProjectRepository;
+import com.example.monitoring.repo.ProjectRepository.ApiStatusUpdate;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind buffer for probe results. Results are merged per API (latest wins) and
+ * flushed periodically with one JDBC batch instead of one UPDATE per probe.
+ * A result whose status is unchanged and whose latency is within
+ * {@code monitoring.persist.latency-threshold-ms} of the last written value is not written,
+ * except for a {@code last_checked} heartbeat every {@code monitoring.persist.heartbeat-ms}.
+ * A flushed row whose status differs from what the table held bumps {@link ChangeTracker}
+ * again, so the ETag of GET /api/data/projects (read from the table) only covers statuses
+ * that are actually there; heartbeats and latency-only rows leave it alone. Version changes
+ * are served from the probe snapshot and bumped by {@link StatusEventBus}.
+ */
+@Component
+public class ProbeWriteBuffer {
+
+    /** What the apis row currently holds, as far as this buffer knows */
+    private record Written(String status, Integer responseTime, Instant at) {}
+
+    private final ProjectRepository repo;
+    private final ChangeTracker changes;
+    private final Map<Long, ApiStatusUpdate> pending = new ConcurrentHashMap<>();
+    private final Map<Long, Written> written = new ConcurrentHashMap<>();
+    private final int latencyThresholdMs;
+    private final Duration heartbeat;
+
+    private final Timer flushTimer;
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+
+    public ProbeWriteBuffer(ProjectRepository repo, ChangeTracker changes, MeterRegistry meters,
+                            @Value("${monitoring.persist.latency-threshold-ms:50}") int latencyThresholdMs,
+                            @Value("${monitoring.persist.heartbeat-ms:300000}") long heartbeatMs) {
+        this.repo = repo;
+        this.changes = changes;
+        this.latencyThresholdMs = latencyThresholdMs;
+        this.heartbeat = Duration.ofMillis(heartbeatMs);
+
+        Gauge.builder("probe.write.queue.depth", pending, Map::size)
+                .description("Probe results waiting to be flushed")
+                .register(meters);
+        this.flushTimer = Timer.builder("probe.write.flush")
+                .description("Duration of one write-behind batch flush")
+                .register(meters);
+        FunctionCounter.builder("probe.write.skipped", skipped, AtomicLong::get)
+                .description("Probe results not written because nothing material changed")
+                .register(meters);
+        FunctionCounter.builder("probe.write.rows", flushedRows, AtomicLong::get)
+                .description("Rows written by write-behind flushes")
+                .register(meters);
+    }
+
+    public void offer(Long apiId, String status, Integer responseTime, Instant checkedAt) {
+        Written last = written.get(apiId);
+        // A pending result is always replaced, otherwise an older unflushed status could win
+        if (last != null && !pending.containsKey(apiId)
+                && last.status().equals(status)
+                && withinThreshold(last.responseTime(), responseTime)
+                && last.at().plus(heartbeat).isAfter(checkedAt)) {
+            skipped.incrementAndGet();
+            return;
+        }
+        pending.put(apiId, new ApiStatusUpdate(apiId, status, responseTime, checkedAt));
+    }
+
+    private boolean withinThreshold(Integer a, Integer b) {
+        if (a == null || b == null) return a == b;
+        return Math.abs(a - b) <= latencyThresholdMs;
+    }
+
+    @Scheduled(fixedDelayString = "${monitoring.persist.flush-interval-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty()) return;
+
+        List<ApiStatusUpdate> batch = new ArrayList<>(pending.size());
+        for (Long apiId : List.copyOf(pending.keySet())) {
+            ApiStatusUpdate u = pending.remove(apiId);
+            if (u != null) batch.add(u);
+        }
+        if (batch.isEmpty()) return;
+
+        try {
+            flushTimer.record(() -> repo.updateApiStatuses(batch));
+            for (ApiStatusUpdate u : batch) {
+                Written before = written.put(u.apiId(), new Written(u.status(), u.responseTime(), u.lastChecked()));
+                if (before == null || !before.status().equals(u.status())) changes.apiChanged(u.apiId());
+            }
+            flushedRows.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            // Put results back unless a newer one arrived meanwhile; retried on the next flush
+            for (ApiStatusUpdate u : batch) {
+                pending.putIfAbsent(u.apiId(), u);
+            }
+            System.err.println("Probe write-behind flush failed (" + batch.size() + " rows): " + e.getMessage());
+        }
+    }
+
+    /**
+     * Forget an API that no longer exists.
+     */
+    public void remove(Long apiId) {
+        written.remove(apiId);
+        pending.remove(apiId);
+    }
+
+    public int queueDepth() {
+        return pending.size();
+    }
+
+    @PreDestroy
+    public void drain() {
+        flush();
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.monitoring.service;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A version string parsed once: numeric components, prerelease identifiers and build
+ * metadata. Tolerates what services actually report: a leading {@code v} ("v2.0"), any number
+ * of components ("7", "2024.11.3.1"), a prerelease after {@code -} ("1.2.3-beta.2") and build
+ * metadata after {@code +}, which is ignored for ordering. A qualifier glued on without a dash
+ * ("1.0.0.RC1", "2.1rc1") is read as a prerelease. A string without a leading number
+ * ("unknown", "N/A") is not {@link #isValid() valid} and sorts like 0.
+ * <p>
+ * Ordering follows semver precedence, except that missing components count as 0, so "10.4"
+ * equals "10.4.0". {@link #compareTo} does not allocate. Instances come from {@link #of},
+ * which interns them by raw string in a bounded cache: the same few strings are compared on
+ * every compliance check and every probe.
+ */
+public final class SemanticVersion implements Comparable<SemanticVersion> {
+
+    static final int MAX_CACHED = 4096;
+
+    private static final int[] NO_COMPONENTS = new int[0];
+    private static final String[] NO_IDENTIFIERS = new String[0];
+    private static final long[] NO_NUMBERS = new long[0];
+    private static final SemanticVersion UNPARSEABLE = new SemanticVersion(null, NO_COMPONENTS, NO_IDENTIFIERS, NO_NUMBERS, null);
+    private static final Map<String, SemanticVersion> CACHE = new ConcurrentHashMap<>();
+
+    private final String raw;
+    private final int[] components;
+    /** Prerelease identifiers; {@link #numbers} holds each one's numeric value, or -1 if it is not numeric */
+    private final String[] prerelease;
+    private final long[] numbers;
+    private final String build;
+
+    private SemanticVersion(String raw, int[] components, String[] prerelease, long[] numbers, String build) {
+        this.raw = raw;
+        this.components = components;
+        this.prerelease = prerelease;
+        this.numbers = numbers;
+        this.build = build;
+    }
+
+    /** Interned parsed version; {@code null} gives an invalid version */
+    public static SemanticVersion of(String raw) {
+        if (raw == null) return UNPARSEABLE;
+        SemanticVersion cached = CACHE.get(raw);
+        if (cached != null) return cached;
+        SemanticVersion parsed = parse(raw);
+        if (CACHE.size() >= MAX_CACHED) {
+            // Only reached when something reports ever-changing strings; the hot set refills at once
+            CACHE.clear();
+        }
+        SemanticVersion existing = CACHE.putIfAbsent(raw, parsed);
+        return existing != null ? existing : parsed;
+    }
+
+    /** Parse without touching the cache */
+    static SemanticVersion parse(String raw) {
+        String s = raw.trim();
+        int len = s.length();
+        int i = 0;
+        if (len > 1 && (s.charAt(0) == 'v' || s.charAt(0) == 'V') && isDigit(s.charAt(1))) i = 1;
+        if (i >= len || !isDigit(s.charAt(i))) {
+            return new SemanticVersion(raw, NO_COMPONENTS, NO_IDENTIFIERS, NO_NUMBERS, null);
+        }
+
+        int count = 1;
+        for (int j = i; j < len - 1; j++) {
+            if (s.charAt(j) == '.' && isDigit(s.charAt(j + 1))) count++;
+            else if (s.charAt(j) != '.' && !isDigit(s.charAt(j))) break;
+        }
+        int[] components = new int[count];
+        int c = 0;
+        while (true) {
+            long value = 0;
+            while (i < len && isDigit(s.charAt(i))) {
+                value = Math.min(value * 10 + (s.charAt(i++) - '0'), Integer.MAX_VALUE);
+            }
+            components[c++] = (int) value;
+            if (c < count && i + 1 < len && s.charAt(i) == '.' && isDigit(s.charAt(i + 1))) {
+                i++;
+            } else {
+                break;
+            }
+        }
+
+        String rest = s.substring(i);
+        String build = null;
+        int plus = rest.indexOf('+');
+        if (plus >= 0) {
+            build = rest.substring(plus + 1);
+            rest = rest.substring(0, plus);
+        }
+        if (!rest.isEmpty() && (rest.charAt(0) == '-' || rest.charAt(0) == '.' || rest.charAt(0) == '_')) {
+            rest = rest.substring(1);
+        }
+        if (rest.isEmpty()) {
+            return new SemanticVersion(raw, components, NO_IDENTIFIERS, NO_NUMBERS, build);
+        }
+
+        String[] prerelease = rest.split("\\.");
+        long[] numbers = new long[prerelease.length];
+        for (int p = 0; p < prerelease.length; p++) {
+            numbers[p] = numericValue(prerelease[p]);
+        }
+        return new SemanticVersion(raw, components, prerelease, numbers, build);
+    }
+
+    private static long numericValue(String identifier) {
+        if (identifier.isEmpty() || identifier.length() > 18) return -1;
+        long value = 0;
+        for (int i = 0; i < identifier.length(); i++) {
+            char ch = identifier.charAt(i);
+            if (!isDigit(ch)) return -1;
+            value = value * 10 + (ch - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    public boolean isValid() {
+        return components.length > 0;
+    }
+
+    /** Component {@code index} (0 = major), 0 when the version has fewer components */
+    public int component(int index) {
+        return index < components.length ? components[index] : 0;
+    }
+
+    public int major() {
+        return component(0);
+    }
+
+    public int minor() {
+        return component(1);
+    }
+
+    public int patch() {
+        return component(2);
+    }
+
+    public boolean isPrerelease() {
+        return prerelease.length > 0;
+    }
+
+    public String build() {
+        return build;
+    }
+
+    @Override
+    public int compareTo(SemanticVersion other) {
+        int n = Math.max(components.length, other.components.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = Integer.compare(component(i), other.component(i));
+            if (cmp != 0) return cmp;
+        }
+
+        // A release ranks above any of its prereleases
+        if (prerelease.length == 0) return other.prerelease.length == 0 ? 0 : 1;
+        if (other.prerelease.length == 0) return -1;
+        int m = Math.min(prerelease.length, other.prerelease.length);
+        for (int i = 0; i < m; i++) {
+            long a = numbers[i];
+            long b = other.numbers[i];
+            int cmp;
+            if (a >= 0 && b >= 0) cmp = Long.compare(a, b);
+            else if (a >= 0) cmp = -1;      // numeric identifiers rank below alphanumeric ones
+            else if (b >= 0) cmp = 1;
+            else cmp = prerelease[i].compareToIgnoreCase(other.prerelease[i]);
+            if (cmp != 0) return cmp;
+        }
+        return Integer.compare(prerelease.length, other.prerelease.length);
+    }
+
+    /**
+     * "major", "minor" or "patch" for a move from {@code previous} to this version (prerelease
+     * and longer-tail changes count as patch), "unknown" if either side is not a version.
+     */
+    public String changeTypeFrom(SemanticVersion previous) {
+        if (!isValid() || !previous.isValid()) return "unknown";
+        if (major() != previous.major()) return "major";
+        if (minor() != previous.minor()) return "minor";
+        return "patch";
+    }
+
+    /** Same raw string; two versions may compare equal without being equal ("10.4" and "10.4.0") */
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof SemanticVersion v && Objects.equals(raw, v.raw));
+    }
+
+    @Override
+    public int hashCode() {
+        return raw != null ? raw.hashCode() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return raw;
+    }
+}
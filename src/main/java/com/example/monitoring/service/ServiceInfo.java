@@ -0,0 +1,33 @@
+package com.example.monitoring.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Version/service fields of a response body, the one parser behind probes, the proxy checks
+ * and the metadata fallback. Strings and numbers are accepted ({@code "version": 2} reads as
+ * "2"); anything else, or a body that is not JSON, leaves the field null.
+ */
+public record ServiceInfo(String version, String service) {
+
+    public static final ServiceInfo NONE = new ServiceInfo(null, null);
+
+    public static ServiceInfo parse(ObjectMapper mapper, String body) {
+        if (body == null || body.isBlank()) return NONE;
+        try {
+            JsonNode node = mapper.readTree(body);
+            return new ServiceInfo(scalar(node.path("version")), scalar(node.path("service")));
+        } catch (Exception ignored) {
+            // Body wasn't JSON – plain health response
+            return NONE;
+        }
+    }
+
+    private static String scalar(JsonNode field) {
+        return field.isTextual() || field.isNumber() ? field.asText() : null;
+    }
+
+    public boolean isEmpty() {
+        return version == null && service == null;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.monitoring.service;
+
+import com.example.monitoring.service.ProbeSnapshotStore.ProbeSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Sequenced stream of probe deltas (status, latency, version) pushed to dashboards.
+ * The last {@code monitoring.push.replay-size} events are retained so a client that
+ * reconnects with its last sequence number only receives what it missed. Like
+ * {@link ChangeTracker}, sequence numbers start at boot time, so a number handed out before a
+ * restart is recognised as such instead of being mistaken for one not yet reached.
+ */
+@Component
+public class StatusEventBus {
+
+    public record StatusEvent(long seq, String type, Long apiId, String status, Integer responseTime,
+                              String version, String service, Instant checkedAt) {}
+
+    private final Sinks.Many<StatusEvent> sink;
+    private final AtomicLong seq = new AtomicLong(System.currentTimeMillis());
+    private final long firstSeq = seq.get();
+    private final int replaySize;
+    private final int latencyDeltaMs;
+    private final ChangeTracker changes;
+
+    public StatusEventBus(ChangeTracker changes,
+                          @Value("${monitoring.push.replay-size:10000}") int replaySize,
+                          @Value("${monitoring.push.latency-delta-ms:100}") int latencyDeltaMs) {
+        this.changes = changes;
+        this.replaySize = Math.max(1, replaySize);
+        this.latencyDeltaMs = latencyDeltaMs;
+        this.sink = Sinks.many().replay().limit(this.replaySize);
+    }
+
+    /**
+     * Publish a probe result if it differs from the previous one: status or version changed,
+     * or latency moved by at least {@code monitoring.push.latency-delta-ms}.
+     */
+    public void onProbe(ProbeSnapshot previous, ProbeSnapshot current) {
+        boolean changed = previous == null
+                || !previous.status().equals(current.status())
+                || !Objects.equals(previous.version(), current.version())
+                || Math.abs(previous.responseTimeMs() - current.responseTimeMs()) >= latencyDeltaMs;
+        if (!changed) return;
+
+        changes.apiChanged(current.apiId());
+        emit(seqNo -> new StatusEvent(seqNo, "status", current.apiId(), current.status(),
+                current.responseTimeMs(), current.version(), current.service(), current.checkedAt()));
+    }
+
+    public void onRemoved(Long apiId) {
+        changes.apiDeleted(apiId);
+        emit(seqNo -> new StatusEvent(seqNo, "removed", apiId, null, null, null, null, Instant.now()));
+    }
+
+    private synchronized void emit(LongFunction<StatusEvent> event) {
+        // synchronized: sequence numbers and sink emissions must stay in the same order
+        sink.tryEmitNext(event.apply(seq.incrementAndGet()));
+    }
+
+    public long currentSeq() {
+        return seq.get();
+    }
+
+    /**
+     * Events after {@code since}, then live events. With no {@code since} only live events are sent.
+     * If {@code since} is older than the retained window, from before this boot or ahead of the
+     * current sequence (a previous run), a single "resync" event comes first and the client
+     * should reload the full payload.
+     */
+    public Flux<StatusEvent> stream(Long since) {
+        return Flux.defer(() -> {
+            long now = seq.get();
+            if (since != null && (since < firstSeq || since > now || now - since > replaySize)) {
+                StatusEvent resync = new StatusEvent(now, "resync", null, null, null, null, null, Instant.now());
+                return Flux.just(resync).concatWith(sink.asFlux().filter(e -> e.seq() > now));
+            }
+            long from = since != null ? since : now;
+            return sink.asFlux().filter(e -> e.seq() > from);
+        });
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.monitoring.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Nightly retention and compaction of api_version_history, one monthly bucket at a time so
+ * each statement touches a bounded slice of the table.
+ * <ul>
+ *   <li>Retention: entries older than {@code monitoring.history.retention-days} are deleted,
+ *       except the newest entry of each API, which still describes its current version.</li>
+ *   <li>Compaction: entries older than {@code monitoring.history.compact-after-days} that repeat
+ *       the version of the preceding entry for the same API and environment are deleted.</li>
+ * </ul>
+ */
+@Component
+public class VersionHistoryMaintenance {
+
+    private static final int BACKFILL_CHUNK = 1000;
+
+    private final JdbcTemplate jdbc;
+    private final Duration retention;
+    private final Duration compactAfter;
+
+    public VersionHistoryMaintenance(JdbcTemplate jdbc,
+                                     @Value("${monitoring.history.retention-days:730}") long retentionDays,
+                                     @Value("${monitoring.history.compact-after-days:90}") long compactAfterDays) {
+        this.jdbc = jdbc;
+        this.retention = Duration.ofDays(retentionDays);
+        this.compactAfter = Duration.ofDays(compactAfterDays);
+    }
+
+    @Scheduled(cron = "${monitoring.history.maintenance-cron:0 30 3 * * *}")
+    public void run() {
+        try {
+            Instant start = Instant.now();
+            int backfilled = backfillBuckets();
+            int expired = applyRetention(start.minus(retention));
+            int compacted = compact(start.minus(compactAfter));
+            System.out.println(String.format(
+                    "Version history maintenance - %d bucketed, %d expired, %d compacted in %d ms",
+                    backfilled, expired, compacted, Duration.between(start, Instant.now()).toMillis()
+            ));
+        } catch (Exception e) {
+            System.err.println("Version history maintenance failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rows written before the bucket column existed. The bucket is computed with
+     * {@link VersionHistoryService#bucketOf}, as for new rows, not with SQL date functions that
+     * would use the database session's time zone; rows are updated {@value #BACKFILL_CHUNK} at a time.
+     */
+    int backfillBuckets() {
+        int updated = 0;
+        while (true) {
+            List<Object[]> chunk = jdbc.query(
+                    "SELECT id, detected_at FROM api_version_history WHERE bucket IS NULL ORDER BY id LIMIT ?",
+                    (rs, i) -> new Object[]{
+                            VersionHistoryService.bucketOf(rs.getTimestamp("detected_at").toInstant()),
+                            rs.getLong("id")},
+                    BACKFILL_CHUNK);
+            if (chunk.isEmpty()) return updated;
+            jdbc.batchUpdate("UPDATE api_version_history SET bucket = ? WHERE id = ?", chunk);
+            updated += chunk.size();
+        }
+    }
+
+    int applyRetention(Instant cutoff) {
+        int deleted = 0;
+        for (Integer bucket : bucketsUpTo(cutoff)) {
+            deleted += jdbc.update("""
+                DELETE FROM api_version_history h
+                WHERE h.bucket = ? AND h.detected_at < ?
+                  AND EXISTS (SELECT 1 FROM api_version_history n
+                              WHERE n.api_id = h.api_id AND n.detected_at > h.detected_at)
+                """, bucket, Timestamp.from(cutoff));
+        }
+        return deleted;
+    }
+
+    int compact(Instant cutoff) {
+        int deleted = 0;
+        for (Integer bucket : bucketsUpTo(cutoff)) {
+            // h repeats the version of p, its immediate predecessor for the same api/environment
+            deleted += jdbc.update("""
+                DELETE FROM api_version_history h
+                WHERE h.bucket = ? AND h.detected_at < ?
+                  AND EXISTS (
+                      SELECT 1 FROM api_version_history p
+                      WHERE p.api_id = h.api_id AND p.environment = h.environment
+                        AND p.version = h.version AND p.detected_at < h.detected_at
+                        AND NOT EXISTS (
+                            SELECT 1 FROM api_version_history m
+                            WHERE m.api_id = h.api_id AND m.environment = h.environment
+                              AND m.detected_at > p.detected_at AND m.detected_at < h.detected_at))
+                """, bucket, Timestamp.from(cutoff));
+        }
+        return deleted;
+    }
+
+    private List<Integer> bucketsUpTo(Instant cutoff) {
+        return jdbc.queryForList(
+                "SELECT DISTINCT bucket FROM api_version_history WHERE bucket <= ? ORDER BY bucket",
+                Integer.class, VersionHistoryService.bucketOf(cutoff));
+    }
+}
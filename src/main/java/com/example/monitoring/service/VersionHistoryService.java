@@ -1,109 +1,175 @@
 package com.example.monitoring.service;
 
+import com.example.monitoring.repo.Cursor;
+import com.example.monitoring.repo.KeysetPage;
+import com.example.monitoring.repo.RepositoryMetrics;
+import com.example.monitoring.repo.RowStreamer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
 
 import java.net.URL;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class VersionHistoryService {
 
     private final JdbcTemplate jdbc;
+    private final RowStreamer rows;
+    private final ComplianceMatrix complianceMatrix;
+    private final RepositoryMetrics metrics;
+    private final MeterRegistry meters;
 
-    public VersionHistoryService(JdbcTemplate jdbc) {
+    /**
+     * Write-through cache of apis.current_version. An API without a version is cached as
+     * {@link #NO_VERSION} because ConcurrentHashMap cannot hold nulls.
+     */
+    private final Map<Long, String> currentVersions = new ConcurrentHashMap<>();
+    private static final String NO_VERSION = "";
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+
+    public VersionHistoryService(JdbcTemplate jdbc, RowStreamer rows, ComplianceMatrix complianceMatrix,
+                                 RepositoryMetrics metrics, MeterRegistry meters) {
         this.jdbc = jdbc;
+        this.rows = rows;
+        this.complianceMatrix = complianceMatrix;
+        this.metrics = metrics;
+        this.meters = meters;
+        this.cacheHits = Counter.builder("version.cache.hits")
+                .description("Current-version lookups served from memory")
+                .register(meters);
+        this.cacheMisses = Counter.builder("version.cache.misses")
+                .description("Current-version lookups that had to read the apis table")
+                .register(meters);
     }
 
-    public record VersionHistory(
-            Long id, Long apiId, String version, String environment, String region,
-            String status, Integer responseTime, Instant detectedAt, String serviceName,
-            String url, Long projectId, String previousVersion, String versionChangeType,
-            Boolean isActive
-    ) {}
-
-    private static class VersionHistoryRow implements RowMapper<VersionHistory> {
-        @Override
-        public VersionHistory mapRow(ResultSet rs, int rowNum) throws SQLException {
-            return new VersionHistory(
-                    rs.getLong("id"),
-                    rs.getLong("api_id"),
-                    rs.getString("version"),
-                    rs.getString("environment"),
-                    rs.getString("region"),
-                    rs.getString("status"),
-                    (Integer) rs.getObject("response_time"),
-                    rs.getTimestamp("detected_at").toInstant(),
-                    rs.getString("service_name"),
-                    rs.getString("url"),
-                    rs.getLong("project_id"),
-                    rs.getString("previous_version"),
-                    rs.getString("version_change_type"),
-                    rs.getBoolean("is_active")
-            );
+    /**
+     * Load every API's current version once, so probes never read it from the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCurrentVersions() {
+        try {
+            jdbc.query("SELECT id, current_version FROM apis", rs -> {
+                String v = rs.getString("current_version");
+                currentVersions.putIfAbsent(rs.getLong("id"), v != null ? v : NO_VERSION);
+            });
+        } catch (Exception e) {
+            System.err.println("Current versions not preloaded: " + e.getMessage());
+        }
+        try {
+            int backfilled = backfillLatestVersions();
+            if (backfilled > 0) {
+                System.out.println("Latest versions backfilled from history: " + backfilled);
+            }
+        } catch (Exception e) {
+            System.err.println("Latest versions not backfilled: " + e.getMessage());
         }
     }
 
+    /**
+     * Fill api_latest_versions for API/environment pairs that only exist in the history
+     * (rows recorded before the table existed). Ties on detected_at go to the highest id.
+     */
+    int backfillLatestVersions() {
+        return jdbc.update("""
+            INSERT INTO api_latest_versions (api_id, environment, version, detected_at)
+            SELECT h.api_id, h.environment, h.version, h.detected_at
+            FROM api_version_history h
+            JOIN apis a ON a.id = h.api_id
+            WHERE h.environment IS NOT NULL
+              AND NOT EXISTS (SELECT 1 FROM api_version_history n
+                              WHERE n.api_id = h.api_id AND n.environment = h.environment
+                                AND (n.detected_at > h.detected_at
+                                     OR (n.detected_at = h.detected_at AND n.id > h.id)))
+              AND NOT EXISTS (SELECT 1 FROM api_latest_versions l
+                              WHERE l.api_id = h.api_id AND l.environment = h.environment)
+            """);
+    }
+
+    /**
+     * Drop the cached version of an API that was edited or deleted; the next probe reloads it.
+     */
+    public void invalidateCurrentVersion(Long apiId) {
+        currentVersions.remove(apiId);
+    }
+
     public void updateApiVersion(Long apiId, String newVersion, String environment,
                                  String region, String status, Integer responseTime,
                                  String serviceName, String url, Long projectId) {
 
-        String currentVersion = getCurrentVersion(apiId);
+        String cached = cachedCurrentVersion(apiId);
+        String currentVersion = NO_VERSION.equals(cached) ? null : cached;
 
         if (currentVersion == null || !currentVersion.equals(newVersion)) {
-            String changeType = determineChangeType(currentVersion, newVersion);
-            createVersionHistoryEntry(apiId, newVersion, environment, region, status,
-                    responseTime, serviceName, url, projectId,
-                    currentVersion, changeType);
-            updateCurrentVersion(apiId, newVersion);
-            logVersionChange(apiId, currentVersion, newVersion, environment, changeType);
+            // Several probe threads may see the same change; only the one that swaps the cache records it
+            if (!currentVersions.replace(apiId, cached, newVersion)) {
+                return;
+            }
+            try {
+                String changeType = determineChangeType(currentVersion, newVersion);
+                createVersionHistoryEntry(apiId, newVersion, environment, region, status,
+                        responseTime, serviceName, url, projectId,
+                        currentVersion, changeType);
+                updateCurrentVersion(apiId, newVersion);
+                complianceMatrix.update(apiId, projectId, serviceName, environment, newVersion, url, Instant.now());
+                logVersionChange(apiId, currentVersion, newVersion, environment, changeType);
+                meters.counter("version.changes", "type", changeType).increment();
+            } catch (RuntimeException e) {
+                currentVersions.replace(apiId, newVersion, cached);
+                throw e;
+            }
         } else {
-            updateApiStatus(apiId, status, responseTime);
+            // status/response_time are persisted by ProbeWriteBuffer; nothing to write here
+            if (!complianceMatrix.contains(apiId)) {
+                complianceMatrix.update(apiId, projectId, serviceName, environment, newVersion, url, Instant.now());
+            }
         }
     }
 
-    private String getCurrentVersion(Long apiId) {
-        try {
-            return jdbc.queryForObject(
-                    "SELECT current_version FROM apis WHERE id = ?",
-                    String.class, apiId
-            );
-        } catch (EmptyResultDataAccessException e) {
-            return null;
+    private String cachedCurrentVersion(Long apiId) {
+        String cached = currentVersions.get(apiId);
+        if (cached != null) {
+            cacheHits.increment();
+            return cached;
         }
+        cacheMisses.increment();
+        String loaded = getCurrentVersion(apiId);
+        String existing = currentVersions.putIfAbsent(apiId, loaded != null ? loaded : NO_VERSION);
+        return existing != null ? existing : (loaded != null ? loaded : NO_VERSION);
     }
 
-    private String determineChangeType(String oldVersion, String newVersion) {
-        if (oldVersion == null || oldVersion.equals("0.0.0")) return "initial";
-
-        try {
-            String[] oldParts = oldVersion.split("\\.");
-            String[] newParts = newVersion.split("\\.");
-
-            if (oldParts.length >= 1 && newParts.length >= 1) {
-                int oldMajor = Integer.parseInt(oldParts[0]);
-                int newMajor = Integer.parseInt(newParts[0]);
-                if (oldMajor != newMajor) return "major";
-            }
-
-            if (oldParts.length >= 2 && newParts.length >= 2) {
-                int oldMinor = Integer.parseInt(oldParts[1]);
-                int newMinor = Integer.parseInt(newParts[1]);
-                if (oldMinor != newMinor) return "minor";
+    private String getCurrentVersion(Long apiId) {
+        return metrics.record("VersionHistoryService", "getCurrentVersion", () -> {
+            try {
+                return jdbc.queryForObject(
+                        "SELECT current_version FROM apis WHERE id = ?",
+                        String.class, apiId
+                );
+            } catch (EmptyResultDataAccessException e) {
+                return null;
             }
+        });
+    }
 
-            return "patch";
-        } catch (Exception e) {
-            return "unknown";
-        }
+    static String determineChangeType(String oldVersion, String newVersion) {
+        if (oldVersion == null || oldVersion.equals("0.0.0")) return "initial";
+        return SemanticVersion.of(newVersion).changeTypeFrom(SemanticVersion.of(oldVersion));
     }
 
     private void createVersionHistoryEntry(Long apiId, String version, String environment,
@@ -114,27 +180,50 @@ public class VersionHistoryService {
         String sql = """
             INSERT INTO api_version_history 
             (api_id, version, environment, region, status, response_time, service_name, 
-             url, project_id, previous_version, version_change_type, detected_at)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+             url, project_id, previous_version, version_change_type, detected_at, bucket)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
             """;
 
-        jdbc.update(sql, apiId, version, environment, region, status,
-                responseTime, serviceName, url, projectId,
-                previousVersion, changeType, Timestamp.from(Instant.now()));
+        Instant now = Instant.now();
+        metrics.record("VersionHistoryService", "createVersionHistoryEntry", () -> {
+            jdbc.update(sql, apiId, version, environment, region, status,
+                    responseTime, serviceName, url, projectId,
+                    previousVersion, changeType, Timestamp.from(now), bucketOf(now));
+            if (environment != null) {
+                updateLatestVersion(apiId, environment, version, now);
+            }
+        });
+    }
+
+    /**
+     * Portable upsert (no MERGE / ON CONFLICT): update the existing row, insert if there is
+     * none, and fall back to the update if another writer inserted it first.
+     */
+    private void updateLatestVersion(Long apiId, String environment, String version, Instant detectedAt) {
+        String update = "UPDATE api_latest_versions SET version = ?, detected_at = ? WHERE api_id = ? AND environment = ?";
+        Timestamp at = Timestamp.from(detectedAt);
+        if (jdbc.update(update, version, at, apiId, environment) > 0) return;
+        try {
+            jdbc.update("INSERT INTO api_latest_versions (api_id, environment, version, detected_at) VALUES (?, ?, ?, ?)",
+                    apiId, environment, version, at);
+        } catch (DuplicateKeyException e) {
+            jdbc.update(update, version, at, apiId, environment);
+        }
+    }
+
+    /**
+     * History bucket (UTC year * 100 + month) of a detection time.
+     */
+    public static int bucketOf(Instant at) {
+        ZonedDateTime utc = at.atZone(ZoneOffset.UTC);
+        return utc.getYear() * 100 + utc.getMonthValue();
     }
 
     private void updateCurrentVersion(Long apiId, String newVersion) {
-        jdbc.update(
+        metrics.record("VersionHistoryService", "updateCurrentVersion", () -> jdbc.update(
                 "UPDATE apis SET current_version = ?, updated_at = ? WHERE id = ?",
                 newVersion, Timestamp.from(Instant.now()), apiId
-        );
-    }
-
-    private void updateApiStatus(Long apiId, String status, Integer responseTime) {
-        jdbc.update(
-                "UPDATE apis SET status = ?, response_time = ?, last_checked = ? WHERE id = ?",
-                status, responseTime, Timestamp.from(Instant.now()), apiId
-        );
+        ));
     }
 
     private void logVersionChange(Long apiId, String oldVersion, String newVersion,
@@ -145,28 +234,68 @@ public class VersionHistoryService {
         ));
     }
 
-    public List<VersionHistory> getVersionHistory(Long apiId, String environment) {
-        String sql = """
-            SELECT * FROM api_version_history 
-            WHERE api_id = ? AND (? IS NULL OR environment = ?)
-            ORDER BY detected_at DESC
-            """;
+    /** Fields of a history entry that paged listings can project (named after their columns) */
+    public static final Map<String, String> HISTORY_FIELDS;
+    static {
+        Map<String, String> f = new LinkedHashMap<>();
+        for (String column : List.of("id", "api_id", "version", "environment", "region", "status",
+                "response_time", "detected_at", "service_name", "url", "project_id", "previous_version",
+                "version_change_type", "is_active")) {
+            f.put(column, column);
+        }
+        HISTORY_FIELDS = Collections.unmodifiableMap(f);
+    }
 
-        return jdbc.query(sql, new VersionHistoryRow(), apiId, environment, environment);
+    /**
+     * Page of an API's version history, newest first. Filtering on environment as a separate
+     * condition (not "? IS NULL OR environment = ?") lets each variant use its index.
+     *
+     * @param fields subset of {@link #HISTORY_FIELDS}, see {@link KeysetPage#fields}
+     */
+    public KeysetPage getVersionHistory(Long apiId, String environment, Cursor after, int limit, List<String> fields) {
+        return metrics.record("VersionHistoryService", "getVersionHistory", () -> environment == null
+                ? KeysetPage.query(jdbc, "api_version_history", "detected_at", HISTORY_FIELDS, fields,
+                        "api_id = ?", List.of(apiId), after, limit)
+                : KeysetPage.query(jdbc, "api_version_history", "detected_at", HISTORY_FIELDS, fields,
+                        "api_id = ? AND environment = ?", List.of(apiId, environment), after, limit));
     }
 
-    public Map<String, String> getLatestVersionsByEnvironment(Long apiId) {
-        String sql = """
-            SELECT DISTINCT ON (environment) environment, version
-            FROM api_version_history 
-            WHERE api_id = ? 
-            ORDER BY environment, detected_at DESC
-            """;
+    /**
+     * Whole version history of an API, newest first, one row at a time.
+     *
+     * @param fields subset of {@link #HISTORY_FIELDS}; only these columns are selected
+     */
+    public void streamVersionHistory(Long apiId, String environment, List<String> fields, RowCallbackHandler handler) {
+        String sql = "SELECT " + String.join(", ", fields) + " FROM api_version_history WHERE api_id = ?"
+                + (environment != null ? " AND environment = ?" : "")
+                + " ORDER BY detected_at DESC, id DESC";
+        if (environment != null) {
+            rows.query(sql, handler, apiId, environment);
+        } else {
+            rows.query(sql, handler, apiId);
+        }
+    }
 
+    public Map<String, String> getLatestVersionsByEnvironment(Long apiId) {
         Map<String, String> versions = new HashMap<>();
-        jdbc.query(sql, rs -> {
-            versions.put(rs.getString("environment"), rs.getString("version"));
-        }, apiId);
+        metrics.record("VersionHistoryService", "getLatestVersionsByEnvironment", () ->
+                jdbc.query("SELECT environment, version FROM api_latest_versions WHERE api_id = ?", rs -> {
+                    versions.put(rs.getString("environment"), rs.getString("version"));
+                }, apiId));
+
+        return versions;
+    }
+
+    /**
+     * Latest version per environment of every API (apiId → environment → version), in one query.
+     */
+    public Map<Long, Map<String, String>> getLatestVersionsForAllApis() {
+        Map<Long, Map<String, String>> versions = new HashMap<>();
+        metrics.record("VersionHistoryService", "getLatestVersionsForAllApis", () ->
+                jdbc.query("SELECT api_id, environment, version FROM api_latest_versions", rs -> {
+                    versions.computeIfAbsent(rs.getLong("api_id"), id -> new HashMap<>())
+                            .put(rs.getString("environment"), rs.getString("version"));
+                }));
 
         return versions;
     }
@@ -189,10 +318,13 @@ public class VersionHistoryService {
                 MIN(detected_at) as first_change,
                 MAX(detected_at) as last_change
             FROM api_version_history 
-            WHERE api_id = ? AND (? IS NULL OR environment = ?)
+            WHERE api_id = ?
             """;
 
-        List<Map<String, Object>> results = jdbc.queryForList(sql, apiId, environment, environment);
+        List<Map<String, Object>> results = metrics.record("VersionHistoryService", "getVersionChangeStats",
+                () -> environment == null
+                        ? jdbc.queryForList(sql, apiId)
+                        : jdbc.queryForList(sql + " AND environment = ?", apiId, environment));
         return results.isEmpty() ? new HashMap<>() : results.get(0);
     }
 }
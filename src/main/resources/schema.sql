@@ -16,3 +16,83 @@ CREATE TABLE IF NOT EXISTS apis (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (project_id) REFERENCES projects(id) ON DELETE CASCADE
 );
+
+-- Version tracking (written by VersionHistoryService)
+ALTER TABLE apis ADD COLUMN IF NOT EXISTS current_version VARCHAR(100);
+ALTER TABLE apis ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP;
+
+-- Per-API probe overrides (ProbePlanner); NULL keeps the adaptive interval and default timeout
+ALTER TABLE apis ADD COLUMN IF NOT EXISTS probe_interval_ms INTEGER;
+ALTER TABLE apis ADD COLUMN IF NOT EXISTS probe_timeout_ms INTEGER;
+
+CREATE INDEX IF NOT EXISTS idx_apis_project ON apis (project_id);
+
+-- One row per detected version change. "bucket" is the UTC month (yyyymm) of detected_at:
+-- retention and compaction work one bucket at a time, on PostgreSQL and H2 alike.
+CREATE TABLE IF NOT EXISTS api_version_history (
+    id BIGSERIAL PRIMARY KEY,
+    api_id BIGINT NOT NULL,
+    version VARCHAR(100) NOT NULL,
+    environment VARCHAR(50),
+    region VARCHAR(50),
+    status VARCHAR(20),
+    response_time INTEGER,
+    detected_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    bucket INTEGER,
+    service_name VARCHAR(255),
+    url VARCHAR(500),
+    project_id BIGINT,
+    previous_version VARCHAR(100),
+    version_change_type VARCHAR(20),
+    is_active BOOLEAN DEFAULT TRUE
+);
+
+ALTER TABLE api_version_history ADD COLUMN IF NOT EXISTS bucket INTEGER;
+
+-- getVersionHistory / getVersionChangeStats: filter on api_id (+ environment), sort by detected_at
+CREATE INDEX IF NOT EXISTS idx_avh_api_detected ON api_version_history (api_id, detected_at);
+CREATE INDEX IF NOT EXISTS idx_avh_api_env_detected ON api_version_history (api_id, environment, detected_at);
+-- Retention/compaction
+CREATE INDEX IF NOT EXISTS idx_avh_bucket ON api_version_history (bucket, detected_at);
+
+-- Probe latency time series (ProbeTimeSeries). Raw samples expire after a couple of days;
+-- 1m/1h/1d rollups are derived from them and kept much longer.
+CREATE TABLE IF NOT EXISTS probe_samples (
+    api_id BIGINT NOT NULL,
+    sampled_at TIMESTAMP NOT NULL,
+    response_time INTEGER,
+    ok BOOLEAN NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_probe_samples_api_time ON probe_samples (api_id, sampled_at);
+CREATE INDEX IF NOT EXISTS idx_probe_samples_time ON probe_samples (sampled_at);
+
+-- resolution_s: 60, 3600 or 86400. min/max/sum cover successful samples only.
+CREATE TABLE IF NOT EXISTS probe_rollups (
+    resolution_s INTEGER NOT NULL,
+    api_id BIGINT NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    sample_count INTEGER NOT NULL,
+    error_count INTEGER NOT NULL,
+    min_ms INTEGER,
+    max_ms INTEGER,
+    sum_ms BIGINT,
+    PRIMARY KEY (resolution_s, api_id, bucket_start)
+);
+
+CREATE INDEX IF NOT EXISTS idx_probe_rollups_bucket ON probe_rollups (resolution_s, bucket_start);
+
+-- Latest version per API and environment, maintained by VersionHistoryService next to every
+-- api_version_history insert; version analytics read it instead of scanning the history.
+CREATE TABLE IF NOT EXISTS api_latest_versions (
+    api_id BIGINT NOT NULL,
+    environment VARCHAR(50) NOT NULL,
+    version VARCHAR(100) NOT NULL,
+    detected_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (api_id, environment),
+    FOREIGN KEY (api_id) REFERENCES apis(id) ON DELETE CASCADE
+);
+
+-- Keyset pagination of API listings (ORDER BY created_at DESC, id DESC)
+CREATE INDEX IF NOT EXISTS idx_apis_created ON apis (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_apis_project_created ON apis (project_id, created_at, id);
@@ -0,0 +1,100 @@
+package com.example.monitoring.service;
+
+import com.example.monitoring.repo.ProjectRepository;
+import com.example.monitoring.repo.ProjectRepository.ProbeTarget;
+import com.example.monitoring.service.MonitoringService.CheckResult;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput of {@link MonitoringService#batchCheck} over a few thousand endpoints served by a
+ * local stub, including recording every result (snapshot, write buffer, version history).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "monitoring.probe.initial-delay-ms=3600000",
+        "monitoring.http.coalesce.ttl-ms=0", // every round calls the stub again
+        "spring.datasource.url=jdbc:h2:mem:batchcheck"
+})
+class MonitoringServiceBatchCheckTest {
+
+    private static final int ENDPOINTS = 3000;
+    /** Far below what loopback allows; catches a batch that degrades to sequential probing */
+    private static final double MIN_PROBES_PER_SECOND = 200;
+
+    private static HttpServer stub;
+    private static ExecutorService stubThreads;
+
+    @Autowired
+    private MonitoringService monitoring;
+    @Autowired
+    private ProjectRepository repo;
+
+    @BeforeAll
+    static void startStub() throws IOException {
+        stubThreads = Executors.newFixedThreadPool(32);
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        stub.setExecutor(stubThreads);
+        stub.createContext("/svc/", exchange -> {
+            String n = exchange.getRequestURI().getPath().substring("/svc/".length());
+            byte[] body = ("{\"service\":\"svc-" + n + "\",\"version\":\"1.0." + n + "\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        stub.start();
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.stop(0);
+        stubThreads.shutdownNow();
+    }
+
+    @Test
+    void probesThousandsOfEndpointsConcurrently() {
+        String base = "http://127.0.0.1:" + stub.getAddress().getPort() + "/svc/";
+        long projectId = repo.createProject("batch-check-throughput");
+        for (int i = 0; i < ENDPOINTS; i++) {
+            repo.addApi(projectId, base + i, "dev", "paris-1");
+        }
+        List<ProbeTarget> targets = repo.findProbeTargets().stream()
+                .filter(t -> t.projectId() == projectId)
+                .toList();
+
+        // First round opens the connections and records every initial version
+        monitoring.batchCheck(targets);
+
+        long start = System.nanoTime();
+        Map<Long, CheckResult> results = monitoring.batchCheck(targets);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double perSecond = ENDPOINTS / seconds;
+        System.out.println(String.format("batchCheck: %d endpoints in %.2f s (%.0f probes/s)",
+                ENDPOINTS, seconds, perSecond));
+
+        assertThat(results).hasSize(ENDPOINTS);
+        assertThat(results.values()).allSatisfy(r -> assertThat(r.status()).isEqualTo("online"));
+        Set<String> versions = results.values().stream().map(CheckResult::version).collect(Collectors.toSet());
+        assertThat(versions).hasSize(ENDPOINTS);
+        assertThat(perSecond).isGreaterThan(MIN_PROBES_PER_SECOND);
+    }
+}
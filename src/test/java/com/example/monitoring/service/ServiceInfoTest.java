@@ -0,0 +1,31 @@
+package com.example.monitoring.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ServiceInfoTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void readsStringAndNumericFields() {
+        assertThat(ServiceInfo.parse(mapper, "{\"service\":\"orders\",\"version\":\"1.2.3\"}"))
+                .isEqualTo(new ServiceInfo("1.2.3", "orders"));
+        assertThat(ServiceInfo.parse(mapper, "{\"version\":2}").version()).isEqualTo("2");
+    }
+
+    @Test
+    void ignoresNonScalarFields() {
+        ServiceInfo info = ServiceInfo.parse(mapper, "{\"version\":{\"major\":2},\"service\":null}");
+
+        assertThat(info.isEmpty()).isTrue();
+    }
+
+    @Test
+    void nonJsonBodyHasNoMetadata() {
+        assertThat(ServiceInfo.parse(mapper, "OK")).isEqualTo(ServiceInfo.NONE);
+        assertThat(ServiceInfo.parse(mapper, "")).isEqualTo(ServiceInfo.NONE);
+    }
+}
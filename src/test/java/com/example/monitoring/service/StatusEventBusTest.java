@@ -0,0 +1,50 @@
+package com.example.monitoring.service;
+
+import com.example.monitoring.service.StatusEventBus.StatusEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatusEventBusTest {
+
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    private final StatusEventBus bus = new StatusEventBus(new ChangeTracker(100), 100, 100);
+
+    @Test
+    void resumesFromKnownSequence() {
+        long since = bus.currentSeq();
+        bus.onRemoved(1L);
+
+        StatusEvent first = bus.stream(since).blockFirst(WAIT);
+
+        assertThat(first.type()).isEqualTo("removed");
+        assertThat(first.apiId()).isEqualTo(1L);
+    }
+
+    @Test
+    void sequenceFromPreviousRunAheadOfCurrentResyncs() {
+        // A client that reconnects after a restart with the Last-Event-ID of the old process
+        long fromPreviousRun = bus.currentSeq() + 5000;
+
+        StatusEvent first = bus.stream(fromPreviousRun).blockFirst(WAIT);
+
+        assertThat(first.type()).isEqualTo("resync");
+    }
+
+    @Test
+    void sequenceFromBeforeBootResyncs() {
+        long beforeBoot = bus.currentSeq() - 10;
+
+        StatusEvent first = bus.stream(beforeBoot).blockFirst(WAIT);
+
+        assertThat(first.type()).isEqualTo("resync");
+    }
+
+    @Test
+    void sequenceStartsAtBootTime() {
+        assertThat(bus.currentSeq()).isGreaterThan(1_000_000_000_000L);
+    }
+}